@@ -0,0 +1,114 @@
+package org.derekfountain.dofc;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.derekfountain.dofc.benchmarks.Main;
+import org.derekfountain.dofc.m.Body;
+import org.derekfountain.dofc.m.Catalog;
+import org.derekfountain.dofc.m.Lens;
+import org.derekfountain.dofc.m.Range;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * PageStateCodec, which carries a page's state in its intent and saves
+ * the application's tabs.
+ * <p>
+ * The single state benchmarks are one tab being created; the tab list
+ * ones are a save and restore with TAB_COUNT tabs, spread over the
+ * catalogue's bodies, lenses and ranges. The URI form this replaced
+ * needs android.net.Uri, so it can't be measured here.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+@State(Scope.Thread)
+public class PageStateBenchmark {
+
+	/**
+	 * Tabs in a save, far more than anyone is likely to have
+	 */
+	protected static final int TAB_COUNT = 30;
+
+	protected PageStateCodec  codec;
+	protected PageState       pageState;
+	protected List<PageState> pageStates;
+	protected byte[]          encodedState;
+	protected byte[]          encodedStates;
+
+	@Setup
+	public void setUp() throws IOException
+	{
+		Catalog catalog = Main.catalog();
+		codec     = new PageStateCodec( catalog );
+		pageState = new PageState().setDefaults( catalog );
+
+		pageStates = new ArrayList<PageState>( TAB_COUNT );
+		for ( int i = 0; i < TAB_COUNT; i++ ) {
+			Body  body  = catalog.getBodies().get( i % catalog.getBodies().size() );
+			Lens  lens  = catalog.getLenses().get( i % catalog.getLenses().size() );
+			Range range = catalog.getRanges().get( i % catalog.getRanges().size() );
+
+			PageState tab = new PageState();
+			tab.setBodyName( body.getName() );
+			tab.setLensName( lens.getName() );
+			tab.setRangeName( range.getName() );
+			tab.setFocalLength( lens.getStartingLength() );
+			tab.setAperture( lens.getStartingAperture() );
+			tab.setDistance( range.getStartingDistance() );
+			pageStates.add( tab );
+		}
+
+		encodedState  = codec.encode( pageState );
+		encodedStates = codec.encode( pageStates );
+	}
+
+	/**
+	 * Putting a new tab's state into its intent
+	 */
+	@Benchmark
+	public byte[] encodeOne()
+	{
+		return codec.encode( pageState );
+	}
+
+	/**
+	 * Reading a tab's state back out of its intent
+	 */
+	@Benchmark
+	public PageState decodeOne() throws IOException
+	{
+		return codec.decodeOne( encodedState );
+	}
+
+	/**
+	 * Saving all the tabs
+	 */
+	@Benchmark
+	public byte[] encodeTabs()
+	{
+		return codec.encode( pageStates );
+	}
+
+	/**
+	 * Restoring all the tabs
+	 */
+	@Benchmark
+	public List<PageState> decodeTabs() throws IOException
+	{
+		return codec.decode( encodedStates );
+	}
+}
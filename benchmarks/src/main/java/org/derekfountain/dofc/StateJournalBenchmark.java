@@ -0,0 +1,108 @@
+package org.derekfountain.dofc;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.concurrent.TimeUnit;
+
+import org.derekfountain.dofc.benchmarks.Main;
+import org.derekfountain.dofc.m.Catalog;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * StateJournal, which keeps the application's tabs across restarts.
+ * <p>
+ * The journal holds TAB_COUNT pages, saved the way ApplicationState saves
+ * them. The restore benchmark reads it back, as the app does at startup.
+ * The write benchmark is one coalesced flush of a page whose sliders have
+ * moved; it includes syncing the file, which is most of the cost, so it
+ * depends a lot on the disk under java.io.tmpdir.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+@State(Scope.Thread)
+public class StateJournalBenchmark {
+
+	/**
+	 * Saved setups, a couple of dozen and then some
+	 */
+	protected static final int TAB_COUNT = 30;
+
+	protected File                         restoreFile;
+	protected File                         writeFile;
+	protected StateJournal                 writeJournal;
+	protected PageState                    pageState;
+	protected PageStateCodec               codec;
+	protected LinkedHashMap<String,byte[]> change;
+	protected int                          next;
+
+	@Setup
+	public void setUp() throws IOException
+	{
+		Catalog catalog = Main.catalog();
+		codec     = new PageStateCodec( null );
+		pageState = new PageState().setDefaults( catalog );
+
+		LinkedHashMap<String,byte[]> pages = new LinkedHashMap<String,byte[]>();
+		for ( int i = 0; i < TAB_COUNT; i++ )
+			pages.put( "page:Tab "+i, codec.encode(pageState) );
+
+		restoreFile = File.createTempFile( "restore", ".journal" );
+		restoreFile.delete();
+		StateJournal journal = new StateJournal( restoreFile );
+		journal.open();
+		journal.write( pages );
+
+		writeFile = File.createTempFile( "write", ".journal" );
+		writeFile.delete();
+		writeJournal = new StateJournal( writeFile );
+		writeJournal.open();
+		writeJournal.write( pages );
+
+		change = new LinkedHashMap<String,byte[]>();
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		restoreFile.delete();
+		writeFile.delete();
+	}
+
+	/**
+	 * Reading back all the tabs at startup
+	 */
+	@Benchmark
+	public LinkedHashMap<String,byte[]> restore() throws IOException
+	{
+		return new StateJournal( restoreFile ).open();
+	}
+
+	/**
+	 * Writing one page after its distance slider has moved
+	 */
+	@Benchmark
+	public long writePage() throws IOException
+	{
+		next = (next + 1) & 1023;
+		pageState.setDistance( Integer.valueOf(next) );
+
+		change.clear();
+		change.put( "page:Tab "+(next % TAB_COUNT), codec.encode(pageState) );
+		writeJournal.write( change );
+		return writeJournal.getLength();
+	}
+}
@@ -0,0 +1,179 @@
+package org.derekfountain.dofc.benchmarks;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Compares a benchmark run against the baseline, and fails if anything has
+ * got worse.
+ * <p>
+ * Usage:
+ * <pre>
+ *   java -cp benchmarks/target/benchmarks.jar org.derekfountain.dofc.benchmarks.Compare \
+ *        benchmarks/baseline/results.csv benchmarks/target/results.csv [tolerance]
+ * </pre>
+ * Both files are JMH CSV results, as written by -rf csv. A benchmark has
+ * regressed if its score is worse than the baseline by more than the
+ * tolerance (a fraction, 0.1 by default). The runs' errors aren't taken
+ * into account: on a noisy machine they can be as big as the scores, and
+ * would let anything through. Its allocation, gc.alloc.rate.norm, has
+ * regressed if it's gone up by more than the tolerance and by more than 8
+ * bytes per operation, which allows for the odd stray byte JMH itself
+ * reports. A benchmark in the baseline which is missing from the run
+ * counts as a regression too, so one can't be dropped unnoticed.
+ * <p>
+ * The exit status is 1 if anything regressed, so this can gate a release
+ * build.
+ */
+public class Compare {
+
+	protected static final String ALLOCATION_SUFFIX  = ":gc.alloc.rate.norm";
+	protected static final double ALLOCATION_SLACK   = 8.0;
+	protected static final double DEFAULT_TOLERANCE  = 0.1;
+
+	/**
+	 * One line of JMH CSV output
+	 */
+	protected static class Result {
+		protected final String mMode;
+		protected final double mScore;
+		protected final String mUnit;
+
+		protected Result( String mode, double score, String unit )
+		{
+			this.mMode  = mode;
+			this.mScore = score;
+			this.mUnit  = unit;
+		}
+
+		/**
+		 * Throughput modes score more for faster code, the rest score less
+		 */
+		protected boolean higherIsBetter()
+		{
+			return "thrpt".equals( mMode );
+		}
+	}
+
+	public static void main( String[] args ) throws IOException
+	{
+		if ( args.length < 2 || args.length > 3 ) {
+			System.err.println("Usage: Compare <baseline.csv> <results.csv> [tolerance]");
+			System.exit(2);
+		}
+
+		Map<String,Result> baseline  = read( args[0] );
+		Map<String,Result> current   = read( args[1] );
+		double             tolerance = ( args.length == 3 ) ? Double.parseDouble(args[2]) : DEFAULT_TOLERANCE;
+
+		int regressions = 0;
+		for ( Map.Entry<String,Result> entry : baseline.entrySet() ) {
+			String name = entry.getKey();
+			Result was  = entry.getValue();
+			Result now  = current.get( name );
+
+			if ( name.indexOf(':') >= 0 && !name.endsWith(ALLOCATION_SUFFIX) )
+				continue;
+
+			if ( now == null ) {
+				System.out.println("MISSING    "+name);
+				regressions++;
+				continue;
+			}
+
+			boolean regressed;
+			if ( name.endsWith(ALLOCATION_SUFFIX) )
+				regressed = now.mScore > was.mScore * (1 + tolerance) + ALLOCATION_SLACK;
+			else if ( was.higherIsBetter() )
+				regressed = now.mScore < was.mScore * (1 - tolerance);
+			else
+				regressed = now.mScore > was.mScore * (1 + tolerance);
+
+			System.out.println(String.format("%-10s %s: %.3f -> %.3f %s",
+					                         regressed ? "REGRESSED" : "ok",
+					                         name, was.mScore, now.mScore, now.mUnit));
+			if ( regressed )
+				regressions++;
+		}
+
+		for ( String name : current.keySet() ) {
+			if ( !baseline.containsKey(name) && name.indexOf(':') < 0 )
+				System.out.println("NEW        "+name);
+		}
+
+		if ( regressions > 0 ) {
+			System.out.println(regressions+" regression(s) against "+args[0]);
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Reads a JMH CSV results file, keyed by benchmark name
+	 */
+	protected static Map<String,Result> read( String fileName ) throws IOException
+	{
+		Map<String,Result> results = new LinkedHashMap<String,Result>();
+		BufferedReader     reader  = new BufferedReader( new InputStreamReader(new FileInputStream(fileName), "UTF-8") );
+		try {
+			String line = reader.readLine();     // Header
+			while ( (line = reader.readLine()) != null ) {
+				ArrayList<String> fields = split( line );
+				if ( fields.size() < 7 )
+					continue;
+
+				// Benchmarks with parameters have extra columns on the end,
+				// which become part of the name
+				//
+				StringBuilder name = new StringBuilder( fields.get(0) );
+				for ( int i = 7; i < fields.size(); i++ )
+					name.append( '/' ).append( fields.get(i) );
+
+				results.put( name.toString(),
+						     new Result( fields.get(1),
+						    		     Double.parseDouble(fields.get(4)),
+						    		     fields.get(6) ) );
+			}
+		}
+		finally {
+			reader.close();
+		}
+		return results;
+	}
+
+	/**
+	 * Splits a CSV line into its fields, taking the quotes off
+	 */
+	protected static ArrayList<String> split( String line )
+	{
+		ArrayList<String> fields  = new ArrayList<String>();
+		StringBuilder     field   = new StringBuilder();
+		boolean           quoted  = false;
+
+		for ( int i = 0; i < line.length(); i++ ) {
+			char c = line.charAt(i);
+			if ( c == '"' ) {
+				if ( quoted && i+1 < line.length() && line.charAt(i+1) == '"' ) {
+					field.append( '"' );
+					i++;
+				}
+				else {
+					quoted = !quoted;
+				}
+			}
+			else if ( c == ',' && !quoted ) {
+				fields.add( field.toString() );
+				field.setLength( 0 );
+			}
+			else {
+				field.append( c );
+			}
+		}
+		fields.add( field.toString() );
+		return fields;
+	}
+}
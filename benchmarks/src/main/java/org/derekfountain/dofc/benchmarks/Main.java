@@ -0,0 +1,85 @@
+package org.derekfountain.dofc.benchmarks;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+import org.derekfountain.dofc.m.Catalog;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks.
+ * <p>
+ * This takes the usual JMH command line, and always adds the GC profiler,
+ * so every run reports allocation per operation alongside the throughput.
+ * A change which starts allocating on a slider drag shows up there long
+ * before it shows up as a slower score.
+ * <p>
+ * The benchmarks read the catalogue and the XML it's compiled from out of
+ * the app's res directory. They find it through the dofc.root system
+ * property, which defaults to the current directory if that has a res
+ * directory in it, otherwise its parent. So running from the top of the
+ * project or from the benchmarks directory both just work.
+ */
+public class Main {
+
+	public static void main( String[] args ) throws Exception
+	{
+		CommandLineOptions commandLine = new CommandLineOptions( args );
+		if ( commandLine.shouldHelp() || commandLine.shouldList() ) {
+			new Runner( commandLine ).list();
+			if ( commandLine.shouldHelp() )
+				commandLine.showHelp();
+			return;
+		}
+
+		Options options = new OptionsBuilder()
+				.parent( commandLine )
+				.addProfiler( GCProfiler.class )
+				.jvmArgsAppend( "-Ddofc.root=" + root().getCanonicalPath() )
+				.build();
+
+		new Runner( options ).run();
+	}
+
+	/**
+	 * Answers the top of the app's source tree
+	 */
+	public static File root()
+	{
+		String root = System.getProperty( "dofc.root" );
+		if ( root == null )
+			root = new File("res").isDirectory() ? "." : "..";
+
+		return new File( root );
+	}
+
+	/**
+	 * Answers the named file in the app's source tree
+	 *
+	 * @param path Path relative to the top of the tree
+	 */
+	public static File file( String path )
+	{
+		return new File( root(), path );
+	}
+
+	/**
+	 * Reads the app's compiled catalogue, res/raw/catalog.bin
+	 */
+	public static Catalog catalog() throws IOException
+	{
+		InputStream in = new FileInputStream( file("res/raw/catalog.bin") );
+		try {
+			return Catalog.read( in );
+		}
+		finally {
+			in.close();
+		}
+	}
+}
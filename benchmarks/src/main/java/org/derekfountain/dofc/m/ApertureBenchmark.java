@@ -0,0 +1,87 @@
+package org.derekfountain.dofc.m;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The aperture slider's stop handling.
+ * <p>
+ * ApertureSlider is a SeekBar, so these drive the StopRange code it hands
+ * the work to: snapping a slider value to the nearest stop, as
+ * findClosestValidValue() does for every movement, and picking up the
+ * stops for a lens, as setStops() does on every lens change.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+@State(Scope.Thread)
+public class ApertureBenchmark {
+
+	protected int[]                 allStops;
+	protected int[]                 inputs;
+	protected List<List<StopRange>> stopRangeSets;
+	protected int                   next;
+
+	@Setup
+	public void setUp()
+	{
+		allStops = StopRange.valuesOf( Arrays.asList(StopRange.values()) );
+
+		// Slider values anywhere across the full range, as a drag produces
+		//
+		Random random = new Random( 42 );
+		inputs = new int[1024];
+		for ( int i = 0; i < inputs.length; i++ )
+			inputs[i] = allStops[0] + random.nextInt( allStops[allStops.length-1] - allStops[0] + 1 );
+
+		// Every combination of stop ranges a lens can have
+		//
+		StopRange[] stopRanges = StopRange.values();
+		stopRangeSets = new ArrayList<List<StopRange>>();
+		for ( int mask = 1; mask < (1 << stopRanges.length); mask++ ) {
+			List<StopRange> set = new ArrayList<StopRange>();
+			for ( StopRange stopRange : stopRanges ) {
+				if ( (mask & (1 << stopRange.ordinal())) != 0 )
+					set.add( stopRange );
+			}
+			stopRangeSets.add( set );
+		}
+	}
+
+	/**
+	 * Snapping a slider value to the nearest stop, as
+	 * findClosestValidValue() does
+	 */
+	@Benchmark
+	public int closestStop()
+	{
+		next = (next + 1) & 1023;
+		return allStops[ StopRange.closestIndex(allStops, inputs[next]) ];
+	}
+
+	/**
+	 * Picking up the stops for a lens's stop ranges, as setStops() does
+	 */
+	@Benchmark
+	public int[] setStops()
+	{
+		next = (next + 1) % stopRangeSets.size();
+		return StopRange.valuesOf( stopRangeSets.get(next) );
+	}
+}
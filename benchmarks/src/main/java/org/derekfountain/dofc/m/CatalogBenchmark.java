@@ -0,0 +1,72 @@
+package org.derekfountain.dofc.m;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import org.derekfountain.dofc.benchmarks.Main;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Reading the compiled catalogue, as the app does at startup.
+ * <p>
+ * The file is read into memory up front, so this measures the decoding
+ * and not the disk. The XML side of the catalogue is compiled at build
+ * time; CatalogCompilerBenchmark covers that.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+@State(Scope.Thread)
+public class CatalogBenchmark {
+
+	protected byte[] data;
+
+	@Setup
+	public void setUp() throws IOException
+	{
+		InputStream in = new FileInputStream( Main.file("res/raw/catalog.bin") );
+		try {
+			data = new byte[in.available()];
+			int length = 0;
+			int count;
+			while ( length < data.length && (count = in.read(data, length, data.length - length)) != -1 )
+				length += count;
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Decoding from a buffer already holding the file
+	 */
+	@Benchmark
+	public Catalog readBuffer() throws IOException
+	{
+		return Catalog.read( ByteBuffer.wrap(data) );
+	}
+
+	/**
+	 * Reading from a stream, as the app does with the raw resource
+	 */
+	@Benchmark
+	public Catalog readStream() throws IOException
+	{
+		return Catalog.read( new ByteArrayInputStream(data) );
+	}
+}
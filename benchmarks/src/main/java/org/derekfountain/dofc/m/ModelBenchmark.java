@@ -0,0 +1,248 @@
+package org.derekfountain.dofc.m;
+
+import java.util.concurrent.TimeUnit;
+
+import org.derekfountain.dofc.benchmarks.Main;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * MVCModel.stateChange(), which runs for every slider movement, and the
+ * DofCalculator and DofBatch sums underneath it.
+ * <p>
+ * Everything uses the default body, lens and range from the app's
+ * catalogue. The slider values are cycled through so each call sees
+ * different inputs, as it would during a drag.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+@State(Scope.Thread)
+public class ModelBenchmark {
+
+	/**
+	 * Rows in a batch, about one DoF table for a shoot plan
+	 */
+	protected static final int BATCH_SIZE = 1024;
+
+	protected Body          body;
+	protected Lens          lens;
+	protected Range         range;
+
+	protected MVCModel      model;
+	protected DofCalculator calculator;
+	protected DofCalculator gridCalculator;
+	protected DofGrid       grid;
+	protected DofResult     result;
+
+	// Slider values to cycle through. Distances aren't whole metres or
+	// feet, so they're never covered by a grid. The grid benchmark uses
+	// the whole metre ones.
+	//
+	protected int[]         stops;
+	protected double[]      distances;
+	protected double[]      wholeDistances;
+	protected int           next;
+
+	// Batch inputs and outputs
+	//
+	protected int[]         batchFocalLengths;
+	protected int[]         batchApertures;
+	protected double[]      batchDistances;
+	protected double[]      nearLimits;
+	protected double[]      farLimits;
+	protected double[]      totals;
+	protected double[]      frontDistances;
+	protected double[]      behindDistances;
+	protected double[]      hyperfocalDistances;
+
+	/**
+	 * Answers the stops the lens's aperture slider goes through, smallest
+	 * f-number first.
+	 */
+	protected static int[] lensStops( Lens lens )
+	{
+		int[] stops = StopRange.valuesOf( lens.getStopRanges() );
+
+		int from = 0;
+		while ( from < stops.length && stops[from] < lens.getMinAperture() )
+			from++;
+
+		int to = stops.length;
+		while ( to > from && stops[to-1] > lens.getMaxAperture() )
+			to--;
+
+		int[] lensStops = new int[to-from];
+		System.arraycopy( stops, from, lensStops, 0, to-from );
+		return lensStops;
+	}
+
+	@Setup
+	public void setUp() throws Exception
+	{
+		Catalog catalog = Main.catalog();
+		body  = catalog.getDefaultBody();
+		lens  = catalog.getDefaultLens();
+		range = catalog.getDefaultRange();
+
+		model          = new MVCModel( body, lens, range );
+		model.setListener( new ModelListener() {
+			public void modelHasChanged() {
+			}
+		});
+
+		calculator     = new DofCalculator();
+		gridCalculator = new DofCalculator();
+
+		// The model only makes a grid for a range that fits, so a grid for
+		// one that doesn't would measure something the app never does
+		//
+		if ( !DofGrid.fits(range) )
+			throw new IllegalStateException("The default range, "+range.getName()+", doesn't get a grid");
+		grid           = new DofGrid( body, range );
+		grid.buildRow( lens.getStartingLength(), lens.getStartingAperture() );
+		gridCalculator.setGrid( grid );
+		result         = new DofResult();
+
+		stops          = lensStops( lens );
+		distances      = new double[64];
+		wholeDistances = new double[64];
+		int span = range.getMaxDistance() - range.getMinDistance();
+		for ( int i = 0; i < distances.length; i++ ) {
+			distances[i]      = range.getMinDistance() + span * (i + 0.5) / distances.length;
+			wholeDistances[i] = range.getMinDistance() + (span * i) / wholeDistances.length;
+			if ( !grid.lookup(lens.getStartingLength(), lens.getStartingAperture(), wholeDistances[i], result) )
+				throw new IllegalStateException("The grid doesn't cover "+wholeDistances[i]+"m");
+		}
+
+		batchFocalLengths   = new int[BATCH_SIZE];
+		batchApertures      = new int[BATCH_SIZE];
+		batchDistances      = new double[BATCH_SIZE];
+		nearLimits          = new double[BATCH_SIZE];
+		farLimits           = new double[BATCH_SIZE];
+		totals              = new double[BATCH_SIZE];
+		frontDistances      = new double[BATCH_SIZE];
+		behindDistances     = new double[BATCH_SIZE];
+		hyperfocalDistances = new double[BATCH_SIZE];
+
+		int lengths = lens.getMaxLength() - lens.getMinLength() + 1;
+		for ( int i = 0; i < BATCH_SIZE; i++ ) {
+			batchFocalLengths[i] = lens.getMinLength() + i % lengths;
+			batchApertures[i]    = stops[i % stops.length];
+			batchDistances[i]    = distances[i % distances.length];
+		}
+	}
+
+	/**
+	 * Dragging the distance slider, through the model
+	 */
+	@Benchmark
+	public DofResult stateChange()
+	{
+		next = (next + 1) & 63;
+		model.stateChange( lens.getStartingLength(), lens.getStartingAperture(), distances[next] );
+		return model.getResult();
+	}
+
+	/**
+	 * Bringing the model up to date in a batch, as a page resume does:
+	 * body, lens, range and slider values all set, then one recalculation
+	 */
+	@Benchmark
+	public DofResult resume()
+	{
+		next = (next + 1) & 63;
+		model.beginUpdate();
+		model.bodyChange( body );
+		model.lensChange( lens );
+		model.rangeChange( range );
+		model.stateChange( lens.getStartingLength(), lens.getStartingAperture(), distances[next] );
+		model.commitUpdate();
+		return model.getResult();
+	}
+
+	/**
+	 * Dragging the distance slider. The hyperfocal distance is reused.
+	 */
+	@Benchmark
+	public DofResult distanceDrag()
+	{
+		next = (next + 1) & 63;
+		calculator.compute( body, lens, range, lens.getStartingLength(), lens.getStartingAperture(),
+				            distances[next], result );
+		return result;
+	}
+
+	/**
+	 * Dragging the aperture slider. Every call needs a new hyperfocal
+	 * distance.
+	 */
+	@Benchmark
+	public DofResult apertureDrag()
+	{
+		next = (next + 1) % stops.length;
+		calculator.compute( body, lens, range, lens.getStartingLength(), stops[next],
+				            range.getStartingDistance(), result );
+		return result;
+	}
+
+	/**
+	 * Dragging the distance slider in whole metres, with the precomputed
+	 * grid row for the focal length and aperture in place.
+	 */
+	@Benchmark
+	public DofResult gridLookup()
+	{
+		next = (next + 1) & 63;
+		gridCalculator.compute( body, lens, range, lens.getStartingLength(), lens.getStartingAperture(),
+				                wholeDistances[next], result );
+		return result;
+	}
+
+	/**
+	 * The closed form sums, with nothing reused.
+	 */
+	@Benchmark
+	public DofResult calculate()
+	{
+		next = (next + 1) & 63;
+		DofCalculator.calculate( lens.getStartingLength(), stops[next % stops.length], distances[next],
+				                 body.getCircleOfConfusion(), result );
+		return result;
+	}
+
+	/**
+	 * The batch variant, a whole table per call.
+	 */
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	public double[] batch()
+	{
+		DofBatch.compute( body.getCircleOfConfusion(), batchFocalLengths, batchApertures, batchDistances,
+				          nearLimits, farLimits, totals, frontDistances, behindDistances, hyperfocalDistances );
+		return nearLimits;
+	}
+
+	/**
+	 * Building a precomputed grid row, as happens on the grid builder
+	 * thread when a distance drag starts at a new focal length or
+	 * aperture.
+	 */
+	@Benchmark
+	public DofGrid buildRow()
+	{
+		next = (next + 1) % stops.length;
+		grid.buildRow( lens.getStartingLength(), stops[next] );
+		return grid;
+	}
+}
@@ -0,0 +1,70 @@
+package org.derekfountain.dofc.tools;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+import org.derekfountain.dofc.benchmarks.Main;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Parsing bodies.xml, lenses.xml and ranges.xml.
+ * <p>
+ * The app no longer parses these at runtime; CatalogCompiler does it at
+ * build time. This is the cost the app used to pay at startup, and is
+ * what CatalogBenchmark's numbers should be compared with. The files are
+ * read from disk each time, as the parser wants them, so the page cache
+ * is part of the measurement.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 10, time = 1)
+@Fork(3)
+@State(Scope.Thread)
+public class CatalogCompilerBenchmark {
+
+	protected File bodies;
+	protected File lenses;
+	protected File ranges;
+
+	@Setup
+	public void setUp()
+	{
+		bodies = Main.file( "res/xml/bodies.xml" );
+		lenses = Main.file( "res/xml/lenses.xml" );
+		ranges = Main.file( "res/xml/ranges.xml" );
+	}
+
+	@Benchmark
+	public CatalogCompiler compileBodies() throws Exception
+	{
+		CatalogCompiler compiler = new CatalogCompiler();
+		compiler.compileBodies( bodies );
+		return compiler;
+	}
+
+	@Benchmark
+	public CatalogCompiler compileLenses() throws Exception
+	{
+		CatalogCompiler compiler = new CatalogCompiler();
+		compiler.compileLenses( lenses );
+		return compiler;
+	}
+
+	@Benchmark
+	public CatalogCompiler compileRanges() throws Exception
+	{
+		CatalogCompiler compiler = new CatalogCompiler();
+		compiler.compileRanges( ranges );
+		return compiler;
+	}
+}
@@ -0,0 +1,88 @@
+package org.derekfountain.dofc;
+
+import org.derekfountain.dofc.m.Catalog;
+
+/**
+ * Holds the state of a single page as a set of primitive values.
+ * <p>
+ * This is used to store a page's state - what body it's using,
+ * the lens, the range, the values of the sliders, etc. - in a
+ * form which can be stored when the application is paused or
+ * destroyed, and restored from when it comes back.
+ * <p>
+ * The content of this object can be passed into an intent, or
+ * saved, in the compact binary form PageStateCodec produces. The
+ * older URI form, from PageStateUri, is still understood.
+ * 
+ */
+public class PageState {
+	protected Integer focalLength;
+	protected Integer aperture;
+	protected Integer distance;
+	protected String  bodyName;
+	protected String  lensName;
+	protected String  rangeName;
+	
+	public Integer getFocalLength() {
+		return focalLength;
+	}
+	public void setFocalLength(Integer focalLength) {
+		this.focalLength = focalLength;
+	}
+	public Integer getAperture() {
+		return aperture;
+	}
+	public void setAperture(Integer aperture) {
+		this.aperture = aperture;
+	}
+	public Integer getDistance() {
+		return distance;
+	}
+	public void setDistance(Integer distance) {
+		this.distance = distance;
+	}
+	public String getBodyName() {
+		return bodyName;
+	}
+	public void setBodyName(String bodyName) {
+		this.bodyName = bodyName;
+	}
+	public String getLensName() {
+		return lensName;
+	}
+	public void setLensName(String lensName) {
+		this.lensName = lensName;
+	}
+	public String getRangeName() {
+		return rangeName;
+	}
+	public void setRangeName(String rangeName) {
+		this.rangeName = rangeName;
+	}
+	
+	/**
+	 * Default constructor provides (unusable) object with
+	 * all null fields. 
+	 */
+	public PageState()
+	{
+	}
+
+	/**
+	 * Sets a bunch of default values into the page state.
+	 * 
+	 * @param catalog Catalogue the defaults come from
+	 * @return
+	 */
+	public PageState setDefaults( Catalog catalog )
+	{
+		setBodyName( catalog.getDefaultBody().getName() );
+		setLensName( catalog.getDefaultLens().getName() );
+		setRangeName(catalog.getDefaultRange().getName() );
+		setFocalLength( catalog.getDefaultLens().getStartingLength() );
+		setAperture( catalog.getDefaultLens().getStartingAperture() );
+		setDistance( catalog.getDefaultRange().getStartingDistance() );
+
+		return this;
+	}
+}
@@ -0,0 +1,360 @@
+package org.derekfountain.dofc;
+
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.derekfountain.dofc.m.Body;
+import org.derekfountain.dofc.m.Catalog;
+import org.derekfountain.dofc.m.Lens;
+import org.derekfountain.dofc.m.Range;
+
+/**
+ * Converts PageStates to and from a compact binary form, for passing in
+ * intents and saving the application's tabs.
+ * <p>
+ * The format is:
+ * <pre>
+ *   version             byte, currently 1
+ *   catalogue hash      varint, Catalog.getFingerprint()
+ *   count               varint
+ *   count records of:
+ *     flags             byte, which of the fields below are present
+ *     body name         name
+ *     lens name         name
+ *     range name        name
+ *     focal length      zigzag varint
+ *     aperture          zigzag varint
+ *     distance          zigzag varint
+ * </pre>
+ * Fields which were null in the PageState are left out and their flag bit
+ * is clear. A name is written as its position in the catalogue plus one,
+ * or as a zero followed by the UTF-8 name (length, then bytes) if it isn't
+ * in the catalogue. Varints are 7 bits per byte, least significant first,
+ * with the top bit set on all but the last byte.
+ * <p>
+ * A normal tab comes to about 8 bytes, 15 on its own with the header,
+ * against 80 or so for the URI form. Decoding is a few array reads per
+ * field with no string parsing. The catalogue hash means positions saved
+ * against one catalogue aren't read against a different one; that's
+ * reported as an error, so the caller can fall back to something else.
+ * <p>
+ * A codec made without a catalogue writes every name in full and a hash
+ * of 0. What it writes can be read back whatever the catalogue, so it's
+ * used for states kept across application updates.
+ * <p>
+ * A codec only keeps the catalogue, so one can be shared between threads.
+ */
+public class PageStateCodec {
+
+	public static final int VERSION = 1;
+
+	protected static final int HAS_BODY         = 0x01;
+	protected static final int HAS_LENS         = 0x02;
+	protected static final int HAS_RANGE        = 0x04;
+	protected static final int HAS_FOCAL_LENGTH = 0x08;
+	protected static final int HAS_APERTURE     = 0x10;
+	protected static final int HAS_DISTANCE     = 0x20;
+
+	protected final Catalog mCatalog;
+
+	/**
+	 * @param catalog Catalogue the names are looked up in, or null to
+	 *                always write names in full
+	 */
+	public PageStateCodec( Catalog catalog )
+	{
+		this.mCatalog = catalog;
+	}
+
+	/**
+	 * Encodes a single page state
+	 *
+	 * @param pageState
+	 * @return The encoded state
+	 */
+	public byte[] encode( PageState pageState )
+	{
+		Output out = new Output( 16 );
+		writeHeader( out, 1 );
+		writeRecord( out, pageState );
+		return out.toByteArray();
+	}
+
+	/**
+	 * Encodes a list of page states, in order
+	 *
+	 * @param pageStates
+	 * @return The encoded states
+	 */
+	public byte[] encode( List<PageState> pageStates )
+	{
+		Output out = new Output( 8 + 8*pageStates.size() );
+		writeHeader( out, pageStates.size() );
+		for ( PageState pageState : pageStates )
+			writeRecord( out, pageState );
+		return out.toByteArray();
+	}
+
+	/**
+	 * Decodes the output of encode(PageState)
+	 *
+	 * @param data
+	 * @return The page state
+	 * @throws IOException if the data isn't a single valid page state, or
+	 *                     was written against a different catalogue
+	 */
+	public PageState decodeOne( byte[] data ) throws IOException
+	{
+		ArrayList<PageState> pageStates = decode( data );
+		if ( pageStates.size() != 1 )
+			throw new IOException("Expected one page state, found "+pageStates.size());
+		return pageStates.get(0);
+	}
+
+	/**
+	 * Decodes the output of either of the encode() methods
+	 *
+	 * @param data
+	 * @return The page states, in the order they were encoded
+	 * @throws IOException if the data isn't valid, or was written against
+	 *                     a different catalogue
+	 */
+	public ArrayList<PageState> decode( byte[] data ) throws IOException
+	{
+		Input in = new Input( data );
+		try {
+			if ( in.readByte() != VERSION )
+				throw new IOException("Unsupported page state version");
+			// A hash of 0 means there are no catalogue positions in the data,
+			// so it can be read with any catalogue, or none
+			//
+			int     fingerprint = in.readVarint();
+			boolean indexed     = ( fingerprint != 0 );
+			if ( indexed && (mCatalog == null || fingerprint != mCatalog.getFingerprint()) )
+				throw new IOException("Page states are from a different catalogue");
+
+			int count = in.readVarint();
+			if ( count < 0 || count > data.length )
+				throw new IOException("Page state data is corrupt");
+
+			ArrayList<PageState> pageStates = new ArrayList<PageState>( count );
+			for ( int i = 0; i < count; i++ )
+				pageStates.add( readRecord(in, indexed) );
+
+			if ( in.mPosition != data.length )
+				throw new IOException("Page state data is corrupt");
+
+			return pageStates;
+		}
+		catch ( ArrayIndexOutOfBoundsException e ) {
+			throw new IOException("Page state data is truncated");
+		}
+		catch ( IndexOutOfBoundsException e ) {
+			throw new IOException("Page state data is corrupt");
+		}
+	}
+
+	protected void writeHeader( Output out, int count )
+	{
+		out.writeByte( VERSION );
+		out.writeVarint( (mCatalog == null) ? 0 : mCatalog.getFingerprint() );
+		out.writeVarint( count );
+	}
+
+	protected void writeRecord( Output out, PageState pageState )
+	{
+		String  bodyName    = pageState.getBodyName();
+		String  lensName    = pageState.getLensName();
+		String  rangeName   = pageState.getRangeName();
+		Integer focalLength = pageState.getFocalLength();
+		Integer aperture    = pageState.getAperture();
+		Integer distance    = pageState.getDistance();
+
+		int flags = 0;
+		if ( bodyName    != null ) flags |= HAS_BODY;
+		if ( lensName    != null ) flags |= HAS_LENS;
+		if ( rangeName   != null ) flags |= HAS_RANGE;
+		if ( focalLength != null ) flags |= HAS_FOCAL_LENGTH;
+		if ( aperture    != null ) flags |= HAS_APERTURE;
+		if ( distance    != null ) flags |= HAS_DISTANCE;
+		out.writeByte( flags );
+
+		if ( bodyName != null ) {
+			Body body = (mCatalog == null) ? null : mCatalog.findBody( bodyName );
+			writeName( out, bodyName, (body == null) ? -1 : body.getIndex() );
+		}
+		if ( lensName != null ) {
+			Lens lens = (mCatalog == null) ? null : mCatalog.findLens( lensName );
+			writeName( out, lensName, (lens == null) ? -1 : lens.getIndex() );
+		}
+		if ( rangeName != null ) {
+			Range range = (mCatalog == null) ? null : mCatalog.findRange( rangeName );
+			writeName( out, rangeName, (range == null) ? -1 : range.getIndex() );
+		}
+
+		if ( focalLength != null ) out.writeZigzag( focalLength.intValue() );
+		if ( aperture    != null ) out.writeZigzag( aperture.intValue() );
+		if ( distance    != null ) out.writeZigzag( distance.intValue() );
+	}
+
+	protected void writeName( Output out, String name, int index )
+	{
+		if ( index >= 0 ) {
+			out.writeVarint( index + 1 );
+		}
+		else {
+			out.writeVarint( 0 );
+			out.writeString( name );
+		}
+	}
+
+	protected PageState readRecord( Input in, boolean indexed ) throws IOException
+	{
+		PageState pageState = new PageState();
+		int       flags     = in.readByte();
+
+		if ( (flags & HAS_BODY) != 0 ) {
+			int index = readIndex( in, indexed );
+			pageState.setBodyName( (index == 0) ? in.readString() : mCatalog.getBodies().get(index - 1).getName() );
+		}
+		if ( (flags & HAS_LENS) != 0 ) {
+			int index = readIndex( in, indexed );
+			pageState.setLensName( (index == 0) ? in.readString() : mCatalog.getLenses().get(index - 1).getName() );
+		}
+		if ( (flags & HAS_RANGE) != 0 ) {
+			int index = readIndex( in, indexed );
+			pageState.setRangeName( (index == 0) ? in.readString() : mCatalog.getRanges().get(index - 1).getName() );
+		}
+
+		if ( (flags & HAS_FOCAL_LENGTH) != 0 ) pageState.setFocalLength( Integer.valueOf(in.readZigzag()) );
+		if ( (flags & HAS_APERTURE)     != 0 ) pageState.setAperture(    Integer.valueOf(in.readZigzag()) );
+		if ( (flags & HAS_DISTANCE)     != 0 ) pageState.setDistance(    Integer.valueOf(in.readZigzag()) );
+
+		return pageState;
+	}
+
+	/**
+	 * Reads the catalogue position of a name, which is 0 if the name
+	 * follows in full
+	 */
+	protected int readIndex( Input in, boolean indexed ) throws IOException
+	{
+		int index = in.readVarint();
+		if ( index != 0 && !indexed )
+			throw new IOException("Page state data is corrupt");
+		return index;
+	}
+
+	/**
+	 * Growable byte array to encode into. ByteArrayOutputStream would do,
+	 * but its methods are all synchronized and it copies on toByteArray()
+	 * regardless.
+	 */
+	protected static class Output {
+		protected byte[] mData;
+		protected int    mLength;
+
+		protected Output( int capacity )
+		{
+			this.mData = new byte[capacity];
+		}
+
+		protected void writeByte( int value )
+		{
+			if ( mLength == mData.length ) {
+				byte[] bigger = new byte[mData.length * 2];
+				System.arraycopy( mData, 0, bigger, 0, mLength );
+				mData = bigger;
+			}
+			mData[mLength++] = (byte)value;
+		}
+
+		protected void writeVarint( int value )
+		{
+			while ( (value & ~0x7f) != 0 ) {
+				writeByte( (value & 0x7f) | 0x80 );
+				value >>>= 7;
+			}
+			writeByte( value );
+		}
+
+		protected void writeZigzag( int value )
+		{
+			writeVarint( (value << 1) ^ (value >> 31) );
+		}
+
+		protected void writeString( String value )
+		{
+			byte[] bytes;
+			try {
+				bytes = value.getBytes( "UTF-8" );
+			}
+			catch ( UnsupportedEncodingException e ) {
+				// Every Java has UTF-8
+				//
+				throw new IllegalStateException( e.toString() );
+			}
+			writeVarint( bytes.length );
+			for ( int i = 0; i < bytes.length; i++ )
+				writeByte( bytes[i] );
+		}
+
+		protected byte[] toByteArray()
+		{
+			if ( mLength == mData.length )
+				return mData;
+			byte[] data = new byte[mLength];
+			System.arraycopy( mData, 0, data, 0, mLength );
+			return data;
+		}
+	}
+
+	/**
+	 * Reads from an encoded array. Running off the end shows up as an
+	 * ArrayIndexOutOfBoundsException, which decode() reports.
+	 */
+	protected static class Input {
+		protected final byte[] mData;
+		protected int          mPosition;
+
+		protected Input( byte[] data )
+		{
+			this.mData = data;
+		}
+
+		protected int readByte()
+		{
+			return mData[mPosition++] & 0xff;
+		}
+
+		protected int readVarint() throws IOException
+		{
+			int value = 0;
+			for ( int shift = 0; shift < 35; shift += 7 ) {
+				int b = mData[mPosition++];
+				value |= (b & 0x7f) << shift;
+				if ( b >= 0 )
+					return value;
+			}
+			throw new IOException("Page state data is corrupt");
+		}
+
+		protected int readZigzag() throws IOException
+		{
+			int value = readVarint();
+			return (value >>> 1) ^ -(value & 1);
+		}
+
+		protected String readString() throws IOException
+		{
+			int length = readVarint();
+			if ( length < 0 || length > mData.length - mPosition )
+				throw new ArrayIndexOutOfBoundsException( length );
+			String value = new String( mData, mPosition, length, "UTF-8" );
+			mPosition += length;
+			return value;
+		}
+	}
+}
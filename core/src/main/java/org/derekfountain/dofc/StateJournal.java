@@ -0,0 +1,399 @@
+package org.derekfountain.dofc;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only file of named values, used to keep the application's
+ * state across restarts.
+ * <p>
+ * Each change is appended to the end of the file as a record: a put of a
+ * name and its value, or a removal of a name. Reading the file back is a
+ * single pass from start to end, replaying the records; the last put of
+ * each name wins. Since the file only ever grows at the end, a write which
+ * is cut short - the process killed, the battery pulled - can only damage
+ * the last record, and that's detected and dropped.
+ * <p>
+ * A write which fails without the process dying - the disk full, say -
+ * can leave part of a record behind too. New records are always written
+ * straight after the last good one, never after whatever follows it, and
+ * after a failure the next write rewrites the whole file, so the values
+ * the failed write held aren't lost either.
+ * <p>
+ * Values which are changed a lot, like a page's slider settings, leave
+ * a trail of dead records behind them. Once the file is more than twice
+ * the size of the values it holds it's compacted: the live values are
+ * written to a new file, which then replaces the old one.
+ * <p>
+ * A file which isn't a journal this version can read - a newer version's,
+ * say, after the app has been downgraded - is never written over. It's
+ * renamed to the same name with ".bad" on the end, and a new journal
+ * started in its place. If the file can't be read at all, nothing is
+ * written until it's been opened successfully.
+ * <p>
+ * The file is:
+ * <pre>
+ *   magic               int, "DOFJ"
+ *   version             int, currently 1
+ *   records of:
+ *     length            int, bytes of payload
+ *     checksum          int, CRC32 of payload
+ *     payload:
+ *       operation       byte, PUT or REMOVE
+ *       name            modified UTF-8, as DataOutput.writeUTF()
+ *       value length    int, PUT only
+ *       value           bytes, PUT only
+ * </pre>
+ * This class does no locking and must only be used from one thread at a
+ * time. It does file I/O on every call, so that shouldn't be the UI thread.
+ */
+public class StateJournal {
+
+	protected static final Logger LOG     = Logger.getLogger( StateJournal.class.getName() );
+
+	protected static final int    MAGIC   = 0x444f464a;    // "DOFJ"
+	protected static final int    VERSION = 1;
+
+	protected static final int    HEADER_LENGTH        = 8;
+	protected static final int    RECORD_HEADER_LENGTH = 8;
+
+	protected static final byte   PUT     = 1;
+	protected static final byte   REMOVE  = 2;
+
+	/**
+	 * The file isn't compacted until it's at least this big, so a small
+	 * state doesn't get rewritten every few changes
+	 */
+	protected static final long   MIN_COMPACT_LENGTH = 16 * 1024;
+
+	protected static final String BAD_SUFFIX = ".bad";
+
+	protected final File                       mFile;
+
+	/**
+	 * True once open() has read the file, or found there isn't one. Until
+	 * then nothing is written, so a file which couldn't be read is left
+	 * alone.
+	 */
+	protected boolean                          mOpen   = false;
+
+	/**
+	 * The values the file currently holds, in the order they were first
+	 * put, and the number of bytes of good records in the file
+	 */
+	protected final LinkedHashMap<String,byte[]> mValues = new LinkedHashMap<String,byte[]>();
+	protected long                               mLength = 0;
+
+	/**
+	 * True if a write has failed, so the file may not hold everything in
+	 * mValues, and may have part of a record after the good ones
+	 */
+	protected boolean                            mDirty  = false;
+
+	/**
+	 * @param file File the journal is kept in. It needn't exist yet.
+	 */
+	public StateJournal( File file )
+	{
+		this.mFile = file;
+	}
+
+	/**
+	 * Reads the journal, and answers the values in it. A missing file is
+	 * an empty journal. A damaged record, and anything after it, is dropped,
+	 * and the file rewritten without it. A file which isn't a journal, or
+	 * is a version this doesn't know, is moved aside and treated as missing.
+	 * <p>
+	 * This must be called, and succeed, before anything is written.
+	 *
+	 * @return The values, in the order they were first put. The map is
+	 *         the caller's to keep.
+	 * @throws IOException if the file can't be read, can't be moved aside,
+	 *                     or a damaged file can't be rewritten
+	 */
+	public LinkedHashMap<String,byte[]> open() throws IOException
+	{
+		mOpen = false;
+		mValues.clear();
+		mLength = 0;
+		mDirty  = false;
+
+		if ( mFile.exists() ) {
+			byte[] data = readFile();
+			mLength = replay( data );
+
+			if ( mLength == 0 ) {
+				File badFile = new File( mFile.getPath()+BAD_SUFFIX );
+				LOG.warning("Journal "+mFile+" can't be read, moving it to "+badFile);
+				if ( !mFile.renameTo(badFile) )
+					throw new IOException("Unable to move "+mFile+" to "+badFile);
+			}
+			else if ( mLength != data.length ) {
+				LOG.warning("Journal "+mFile+" is damaged after byte "+mLength+" of "+data.length+", dropping the rest");
+				rewrite();
+			}
+			else if ( needsCompacting() ) {
+				rewrite();
+			}
+		}
+
+		mOpen = true;
+		return new LinkedHashMap<String,byte[]>( mValues );
+	}
+
+	/**
+	 * Appends a set of changes to the journal, and makes sure they're on
+	 * disk before returning. A null value removes the name.
+	 *
+	 * @param changes
+	 * @throws IOException if the journal hasn't been opened, or can't be
+	 *                     written
+	 */
+	public void write( Map<String,byte[]> changes ) throws IOException
+	{
+		if ( !mOpen )
+			throw new IOException("Journal "+mFile+" hasn't been opened, not writing to it");
+		if ( changes.isEmpty() )
+			return;
+
+		ByteArrayOutputStream records = new ByteArrayOutputStream();
+		for ( Map.Entry<String,byte[]> change : changes.entrySet() ) {
+			String name  = change.getKey();
+			byte[] value = change.getValue();
+			if ( value == null ) {
+				if ( mValues.remove(name) == null )
+					continue;
+			}
+			else {
+				mValues.put( name, value );
+			}
+			writeRecord( records, name, value );
+		}
+
+		if ( mLength == 0 || mDirty ) {
+			// No file yet, or what was there has been moved aside, or the
+			// last write failed. Start it off again with everything held.
+			//
+			rewrite();
+		}
+		else if ( records.size() > 0 ) {
+			// Until the records are safely on disk, the file can't be
+			// trusted to hold everything
+			//
+			mDirty = true;
+			append( records );
+			mDirty = false;
+
+			if ( needsCompacting() )
+				rewrite();
+		}
+	}
+
+	/**
+	 * Writes the records to the file, straight after the last good one,
+	 * and cuts off anything after them. If that fails, what's been written
+	 * is cut off again if it can be.
+	 */
+	protected void append( ByteArrayOutputStream records ) throws IOException
+	{
+		RandomAccessFile out = new RandomAccessFile( mFile, "rw" );
+		try {
+			out.seek( mLength );
+			out.write( records.toByteArray() );
+			out.setLength( mLength + records.size() );
+			out.getFD().sync();
+		}
+		catch ( IOException e ) {
+			try {
+				out.setLength( mLength );
+			}
+			catch ( IOException ignored ) {
+				// The journal's dirty, so the next write starts the file
+				// again anyway
+			}
+			throw e;
+		}
+		finally {
+			out.close();
+		}
+		mLength += records.size();
+	}
+
+	/**
+	 * Rewrites the journal with only the values it currently holds. The new
+	 * file is written alongside the old one and renamed over it, so the
+	 * journal is never left half written.
+	 *
+	 * @throws IOException if the journal hasn't been opened, or can't be
+	 *                     written
+	 */
+	public void compact() throws IOException
+	{
+		if ( !mOpen )
+			throw new IOException("Journal "+mFile+" hasn't been opened, not writing to it");
+
+		rewrite();
+	}
+
+	protected void rewrite() throws IOException
+	{
+		ByteArrayOutputStream contents = new ByteArrayOutputStream();
+		DataOutputStream      header   = new DataOutputStream( contents );
+		header.writeInt( MAGIC );
+		header.writeInt( VERSION );
+		for ( Map.Entry<String,byte[]> entry : mValues.entrySet() )
+			writeRecord( contents, entry.getKey(), entry.getValue() );
+
+		File             newFile = new File( mFile.getPath()+".new" );
+		FileOutputStream out     = new FileOutputStream( newFile );
+		try {
+			contents.writeTo( out );
+			out.flush();
+			out.getFD().sync();
+		}
+		finally {
+			out.close();
+		}
+
+		if ( !newFile.renameTo(mFile) ) {
+			newFile.delete();
+			throw new IOException("Unable to replace "+mFile);
+		}
+		mLength = contents.size();
+		mDirty  = false;
+	}
+
+	/**
+	 * Answers the number of bytes of good records in the file
+	 */
+	public long getLength() {
+		return mLength;
+	}
+
+	/**
+	 * True if the file has grown to more than twice the size of what it
+	 * holds
+	 */
+	protected boolean needsCompacting()
+	{
+		if ( mLength < MIN_COMPACT_LENGTH )
+			return false;
+
+		long live = HEADER_LENGTH;
+		for ( Map.Entry<String,byte[]> entry : mValues.entrySet() )
+			live += RECORD_HEADER_LENGTH + 1 + 2 + entry.getKey().length() + 4 + entry.getValue().length;
+
+		return mLength > 2 * live;
+	}
+
+	/**
+	 * Reads the whole file in one go
+	 */
+	protected byte[] readFile() throws IOException
+	{
+		FileInputStream in = new FileInputStream( mFile );
+		try {
+			byte[] data   = new byte[(int)mFile.length()];
+			int    length = 0;
+			int    count;
+			while ( length < data.length && (count = in.read(data, length, data.length - length)) != -1 )
+				length += count;
+
+			if ( length == data.length )
+				return data;
+
+			byte[] shorter = new byte[length];
+			System.arraycopy( data, 0, shorter, 0, length );
+			return shorter;
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	/**
+	 * Applies the records in the file's contents to mValues, in order.
+	 *
+	 * @param data The file's contents
+	 * @return The number of bytes of good records, or 0 if the file isn't
+	 *         a journal at all, or is one of another version
+	 */
+	protected long replay( byte[] data ) throws IOException
+	{
+		DataInputStream in = new DataInputStream( new ByteArrayInputStream(data) );
+		if ( data.length < HEADER_LENGTH || in.readInt() != MAGIC || in.readInt() != VERSION ) {
+			LOG.warning("Journal "+mFile+" isn't a version "+VERSION+" journal");
+			return 0;
+		}
+
+		CRC32 crc      = new CRC32();
+		int   position = HEADER_LENGTH;
+		while ( data.length - position >= RECORD_HEADER_LENGTH ) {
+			int length   = in.readInt();
+			int checksum = in.readInt();
+			if ( length < 0 || length > data.length - position - RECORD_HEADER_LENGTH )
+				break;
+
+			crc.reset();
+			crc.update( data, position + RECORD_HEADER_LENGTH, length );
+			if ( (int)crc.getValue() != checksum )
+				break;
+
+			byte operation = in.readByte();
+			String name    = in.readUTF();
+			if ( operation == PUT ) {
+				byte[] value = new byte[in.readInt()];
+				in.readFully( value );
+				mValues.put( name, value );
+			}
+			else if ( operation == REMOVE ) {
+				mValues.remove( name );
+			}
+			else {
+				break;
+			}
+
+			position += RECORD_HEADER_LENGTH + length;
+		}
+		return position;
+	}
+
+	/**
+	 * Writes one record, checksum and all. A null value is a removal.
+	 */
+	protected static void writeRecord( ByteArrayOutputStream out, String name, byte[] value ) throws IOException
+	{
+		ByteArrayOutputStream payload     = new ByteArrayOutputStream( 32 + ((value == null) ? 0 : value.length) );
+		DataOutputStream      payloadData = new DataOutputStream( payload );
+		if ( value == null ) {
+			payloadData.writeByte( REMOVE );
+			payloadData.writeUTF( name );
+		}
+		else {
+			payloadData.writeByte( PUT );
+			payloadData.writeUTF( name );
+			payloadData.writeInt( value.length );
+			payloadData.write( value );
+		}
+		byte[] bytes = payload.toByteArray();
+
+		CRC32 crc = new CRC32();
+		crc.update( bytes, 0, bytes.length );
+
+		DataOutputStream recordData = new DataOutputStream( out );
+		recordData.writeInt( bytes.length );
+		recordData.writeInt( (int)crc.getValue() );
+		recordData.write( bytes );
+	}
+}
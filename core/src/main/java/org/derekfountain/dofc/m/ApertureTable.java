@@ -0,0 +1,79 @@
+package org.derekfountain.dofc.m;
+
+/**
+ * Table of the exact values to use in the model calculations for each
+ * supported aperture.
+ * <p>
+ * Apertures are handled throughout the application as integers like 400
+ * for f/4.0. Every supported value is a multiple of 10 between 100 and
+ * 6400, so the exact f-numbers are held in a plain array indexed by the
+ * aperture value divided by 10. Looking one up is an array access, with
+ * no boxing or hashing.
+ * <p>
+ * The table is filled from the StopRange values, which came from here:
+ *   http://en.wikipedia.org/wiki/F-number
+ */
+public final class ApertureTable {
+
+	/**
+	 * All aperture values are a multiple of this
+	 */
+	protected static final int      APERTURE_STEP = 10;
+
+	/**
+	 * Largest aperture value the table can hold
+	 */
+	protected static final int      MAX_APERTURE  = 6400;
+
+	/**
+	 * Exact f-numbers, indexed by aperture value / APERTURE_STEP. Slots
+	 * for unsupported values hold NaN.
+	 */
+	protected static final double[] exactValues   = new double[MAX_APERTURE/APERTURE_STEP + 1];
+	static {
+		final double SQUARE_ROOT_OF_2 = Math.sqrt(2);
+
+		for ( int i = 0; i < exactValues.length; i++ )
+			exactValues[i] = Double.NaN;
+
+		for ( StopRange stopRange : StopRange.values() ) {
+			final int[]    values = stopRange.getValues();
+			final double[] powers = stopRange.getPowers();
+
+			for ( int i = 0; i < values.length; i++ )
+				exactValues[values[i]/APERTURE_STEP] = Math.pow(SQUARE_ROOT_OF_2, powers[i]);
+		}
+	}
+
+	private ApertureTable()
+	{
+	}
+
+	/**
+	 * Answers true if the given aperture value is one the model knows about.
+	 *
+	 * @param aperture Aperture value, 400 being f/4.0, etc.
+	 * @return
+	 */
+	public static boolean isSupported( int aperture )
+	{
+		return aperture >= 0 && aperture <= MAX_APERTURE &&
+			   (aperture % APERTURE_STEP) == 0 &&
+			   !Double.isNaN( exactValues[aperture/APERTURE_STEP] );
+	}
+
+	/**
+	 * Answers the exact f-number for the given aperture value.
+	 *
+	 * @param aperture Aperture value, 400 being f/4.0, etc.
+	 * @return The exact f-number, e.g. 4.0 for 400, 5.656... for 560
+	 * @throws IllegalArgumentException if the aperture isn't a supported one
+	 */
+	public static double exactValue( int aperture )
+	{
+		if ( !isSupported(aperture) )
+			throw new IllegalArgumentException("Unsupported aperture value: "+aperture);
+
+		return exactValues[aperture/APERTURE_STEP];
+	}
+}
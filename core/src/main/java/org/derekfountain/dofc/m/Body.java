@@ -0,0 +1,54 @@
+package org.derekfountain.dofc.m;
+
+/**
+ * Body class, defines a camera body.
+ * <p>
+ * Bodies can't be changed once they're made. The objects the catalogue
+ * answers are shared by everything using it, possibly on more than one
+ * thread.
+ */
+public class Body {
+	
+	protected final String  mName;
+
+	/**
+	 * Position of this body in the list of known bodies, or -1 if
+	 * it didn't come from there
+	 */
+	protected final int     mIndex;
+	
+	/**
+	 * coc is stored in mm. Suitable values are found here:
+	 * http://en.wikipedia.org/wiki/Circle_of_confusion#Circle_of_confusion_diameter_limit_based_on_d.2F1500
+	 */
+	protected final double  mCircleOfConfusion;
+
+	public String getName() {
+		return mName;
+	}
+	public int getIndex() {
+		return mIndex;
+	}
+	public double getCircleOfConfusion() {
+		return mCircleOfConfusion;
+	}
+	
+	public Body( String name, double circleOfConfusion )
+	{
+		this( name, circleOfConfusion, -1 );
+	}
+	
+	/**
+	 * Constructor for a body in the catalogue's list
+	 * 
+	 * @param name
+	 * @param circleOfConfusion
+	 * @param index Position in the list
+	 */
+	protected Body( String name, double circleOfConfusion, int index )
+	{
+		this.mName              = name;
+		this.mCircleOfConfusion = circleOfConfusion;
+		this.mIndex             = index;
+	}
+}
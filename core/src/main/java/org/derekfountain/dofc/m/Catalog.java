@@ -0,0 +1,264 @@
+package org.derekfountain.dofc.m;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * The catalogue of bodies, lenses and ranges known to the application.
+ * <p>
+ * The bodies.xml, lenses.xml and ranges.xml files are compiled at build
+ * time into a single binary file, res/raw/catalog.bin, by the
+ * CatalogCompiler tool. The XML is checked at that point, so a broken
+ * file stops the build rather than producing a catalogue with bits
+ * missing. At runtime the whole file is read in one go and decoded from
+ * the buffer, with no XML parsing or number conversions.
+ * <p>
+ * The format is a string table followed by fixed size records for each
+ * of the three sections. See CatalogCompiler for the details.
+ * <p>
+ * This class only decodes the file, from a stream or a buffer, and knows
+ * nothing about Android. CatalogLoader reads it from the application's
+ * resources.
+ * <p>
+ * A Catalog object is an immutable snapshot, so it can be used from any
+ * thread without locking. Reloading the catalogue builds a new snapshot
+ * and swaps it in.
+ */
+public class Catalog {
+
+	protected static final int MAGIC   = 0x444f4643;    // "DOFC"
+	protected static final int VERSION = 1;
+
+	/*
+	 * The contents of the catalogue. None of these change once the
+	 * constructor has finished, and the lists handed out can't be
+	 * modified. The Body, Lens and Range objects are shared by everyone
+	 * using the catalogue and must be treated as read only.
+	 */
+	protected final List<Body>             mBodies;
+	protected final List<Lens>             mLenses;
+	protected final List<Range>            mRanges;
+	protected final HashMap<String,Body>   mBodiesByName;
+	protected final HashMap<String,Lens>   mLensesByName;
+	protected final HashMap<String,Range>  mRangesByName;
+	protected final Body                   mDefaultBody;
+	protected final Lens                   mDefaultLens;
+	protected final Range                  mDefaultRange;
+
+	/**
+	 * Hash of the names in the catalogue, in order. Anything which stores
+	 * positions in the catalogue rather than names can keep this with them,
+	 * and so tell whether the positions still mean the same thing.
+	 */
+	protected final int                    mFingerprint;
+
+	protected Catalog( ArrayList<Body>  bodies, int defaultBody,
+			           ArrayList<Lens>  lenses, int defaultLens,
+			           ArrayList<Range> ranges, int defaultRange )
+	{
+		this.mBodies       = Collections.unmodifiableList( bodies );
+		this.mLenses       = Collections.unmodifiableList( lenses );
+		this.mRanges       = Collections.unmodifiableList( ranges );
+		this.mDefaultBody  = bodies.get( defaultBody );
+		this.mDefaultLens  = lenses.get( defaultLens );
+		this.mDefaultRange = ranges.get( defaultRange );
+
+		// Index everything by name so it can be found quickly. The catalogue
+		// compiler doesn't allow duplicate names.
+		//
+		this.mBodiesByName = new HashMap<String,Body>();
+		for ( Body body : bodies )
+			mBodiesByName.put( body.getName(), body );
+
+		this.mLensesByName = new HashMap<String,Lens>();
+		for ( Lens lens : lenses )
+			mLensesByName.put( lens.getName(), lens );
+
+		this.mRangesByName = new HashMap<String,Range>();
+		for ( Range range : ranges )
+			mRangesByName.put( range.getName(), range );
+
+		int fingerprint = 1;
+		for ( Body body : bodies )
+			fingerprint = 31*fingerprint + body.getName().hashCode();
+		for ( Lens lens : lenses )
+			fingerprint = 31*fingerprint + lens.getName().hashCode();
+		for ( Range range : ranges )
+			fingerprint = 31*fingerprint + range.getName().hashCode();
+		this.mFingerprint = ( fingerprint == 0 ) ? 1 : fingerprint;    // 0 means "no catalogue" to PageStateCodec
+	}
+
+	public List<Body> getBodies() {
+		return mBodies;
+	}
+	public List<Lens> getLenses() {
+		return mLenses;
+	}
+	public List<Range> getRanges() {
+		return mRanges;
+	}
+	public Body getDefaultBody() {
+		return mDefaultBody;
+	}
+	public Lens getDefaultLens() {
+		return mDefaultLens;
+	}
+	public Range getDefaultRange() {
+		return mDefaultRange;
+	}
+	public int getFingerprint() {
+		return mFingerprint;
+	}
+
+	/**
+	 * Answers the named body, or null if there isn't one of that name
+	 */
+	public Body findBody( String name ) {
+		return mBodiesByName.get( name );
+	}
+	/**
+	 * Answers the named lens, or null if there isn't one of that name
+	 */
+	public Lens findLens( String name ) {
+		return mLensesByName.get( name );
+	}
+	/**
+	 * Answers the named range, or null if there isn't one of that name
+	 */
+	public Range findRange( String name ) {
+		return mRangesByName.get( name );
+	}
+
+	/**
+	 * Reads a compiled catalogue from the given stream. The stream is
+	 * read to the end but isn't closed.
+	 *
+	 * @param in
+	 * @return The catalogue
+	 * @throws IOException if the stream can't be read or doesn't hold a
+	 *                     valid catalogue
+	 */
+	public static Catalog read( InputStream in ) throws IOException
+	{
+		// Read the whole thing into one buffer. The available() count is
+		// normally the whole file for a resource, so this is usually one read.
+		//
+		byte[] data   = new byte[Math.max(in.available(), 4096)];
+		int    length = 0;
+		int    count;
+		while ( (count = in.read(data, length, data.length - length)) != -1 ) {
+			length += count;
+			if ( length == data.length ) {
+				
+				// Buffer is full. Only grow it if there's actually more to come.
+				//
+				int next = in.read();
+				if ( next == -1 )
+					break;
+				
+				byte[] bigger = new byte[data.length * 2];
+				System.arraycopy( data, 0, bigger, 0, length );
+				data = bigger;
+				data[length++] = (byte)next;
+			}
+		}
+
+		return read( ByteBuffer.wrap(data, 0, length) );
+	}
+
+	/**
+	 * Decodes a compiled catalogue from the given buffer.
+	 *
+	 * @param buffer
+	 * @return The catalogue
+	 * @throws IOException if the buffer doesn't hold a valid catalogue
+	 */
+	public static Catalog read( ByteBuffer buffer ) throws IOException
+	{
+		try {
+			if ( buffer.getInt() != MAGIC )
+				throw new IOException("Not a catalogue file");
+			if ( buffer.getInt() != VERSION )
+				throw new IOException("Unsupported catalogue version");
+
+			// String table. The strings are decoded straight out of the
+			// buffer's array if it has one. A direct or mapped buffer, or a
+			// read-only one, doesn't, so they're copied out first.
+			//
+			String[] strings = new String[buffer.getInt()];
+			byte[]   scratch = buffer.hasArray() ? null : new byte[64];
+			for ( int i = 0; i < strings.length; i++ ) {
+				int length = buffer.getShort() & 0xffff;
+				if ( scratch == null ) {
+					strings[i] = new String( buffer.array(), buffer.arrayOffset() + buffer.position(), length, "UTF-8" );
+					buffer.position( buffer.position() + length );
+				}
+				else {
+					if ( scratch.length < length )
+						scratch = new byte[length];
+					buffer.get( scratch, 0, length );
+					strings[i] = new String( scratch, 0, length, "UTF-8" );
+				}
+			}
+
+			// Bodies
+			//
+			int             bodyCount   = buffer.getInt();
+			int             defaultBody = buffer.getInt();
+			ArrayList<Body> bodies      = new ArrayList<Body>( bodyCount );
+			for ( int i = 0; i < bodyCount; i++ ) {
+				bodies.add( new Body(strings[buffer.getInt()], buffer.getDouble(), i) );
+			}
+
+			// Lenses
+			//
+			StopRange[]     stopRanges  = StopRange.values();
+			int             lensCount   = buffer.getInt();
+			int             defaultLens = buffer.getInt();
+			ArrayList<Lens> lenses      = new ArrayList<Lens>( lensCount );
+			for ( int i = 0; i < lensCount; i++ ) {
+				String name             = strings[buffer.getInt()];
+				int    minLength        = buffer.getInt();
+				int    maxLength        = buffer.getInt();
+				int    startingLength   = buffer.getInt();
+				int    minAperture      = buffer.getInt();
+				int    maxAperture      = buffer.getInt();
+				int    startingAperture = buffer.getInt();
+				int    stopRangeBits    = buffer.getInt();
+
+				ArrayList<StopRange> lensStopRanges = new ArrayList<StopRange>();
+				for ( StopRange stopRange : stopRanges ) {
+					if ( (stopRangeBits & (1 << stopRange.ordinal())) != 0 )
+						lensStopRanges.add( stopRange );
+				}
+
+				lenses.add( new Lens(name, minLength, maxLength, startingLength,
+						             minAperture, maxAperture, startingAperture,
+						             Collections.unmodifiableList(lensStopRanges), i) );
+			}
+
+			// Ranges
+			//
+			int              rangeCount   = buffer.getInt();
+			int              defaultRange = buffer.getInt();
+			ArrayList<Range> ranges       = new ArrayList<Range>( rangeCount );
+			for ( int i = 0; i < rangeCount; i++ ) {
+				ranges.add( new Range(strings[buffer.getInt()], buffer.getInt(), buffer.getInt(), buffer.getInt(), i) );
+			}
+
+			return new Catalog( bodies, defaultBody, lenses, defaultLens, ranges, defaultRange );
+		}
+		catch ( BufferUnderflowException e ) {
+			throw new IOException("Catalogue is truncated");
+		}
+		catch ( IndexOutOfBoundsException e ) {
+			throw new IOException("Catalogue is corrupt");
+		}
+	}
+}
@@ -0,0 +1,104 @@
+package org.derekfountain.dofc.m;
+
+/**
+ * Batch version of the model calculation.
+ * <p>
+ * MVCModel works on one set of inputs at a time and tells its view about
+ * the result. This does the same sums over whole arrays of inputs, with no
+ * view and no objects per row, which is what you want when generating DoF
+ * tables for a complete shoot plan.
+ * <p>
+ * The inputs and outputs are parallel arrays: row i of the outputs is the
+ * result for focalLengths[i], apertures[i] and distances[i]. The caller
+ * supplies the output arrays so they can be reused from one batch to the
+ * next.
+ * <p>
+ * Units are as per MVCModel: focal lengths in mm, apertures as the integer
+ * codes used by the aperture slider (400 is f/4.0), distances in metres,
+ * circle of confusion in mm. All the results are in metres. Where the far
+ * limit is at infinity the far limit, total and distance behind the
+ * subject are Double.POSITIVE_INFINITY.
+ */
+public final class DofBatch {
+
+	private DofBatch()
+	{
+	}
+
+	/**
+	 * Calculates depth of field for every row of the inputs given.
+	 * <p>
+	 * The formulas are exactly those in DofCalculator, as used by MVCModel.stateChange().
+	 * <p>
+	 * The calculation is done in two passes. The first looks up the exact
+	 * aperture values and works out the hyperfocal distances. The second
+	 * is straight double arithmetic with no calls or branches in it, which
+	 * is the shape of loop the JIT is able to unroll and vectorise.
+	 *
+	 * @param circleOfConfusion   Circle of confusion of the body, in mm
+	 * @param focalLengths        Focal lengths, in mm
+	 * @param apertures           Aperture codes, e.g. 400 for f/4.0
+	 * @param distances           Subject distances, in m
+	 * @param nearLimits          Output near limits
+	 * @param farLimits           Output far limits
+	 * @param totals              Output total depths of field
+	 * @param frontDistances      Output distances in front of the subject
+	 * @param behindDistances     Output distances behind the subject
+	 * @param hyperfocalDistances Output hyperfocal distances
+	 * @throws IllegalArgumentException if any array is shorter than focalLengths,
+	 *                                  or an aperture isn't a supported one
+	 */
+	public static void compute( double circleOfConfusion,
+			                    int[]    focalLengths,
+			                    int[]    apertures,
+			                    double[] distances,
+			                    double[] nearLimits,
+			                    double[] farLimits,
+			                    double[] totals,
+			                    double[] frontDistances,
+			                    double[] behindDistances,
+			                    double[] hyperfocalDistances )
+	{
+		final int count = focalLengths.length;
+
+		if ( apertures.length       < count || distances.length           < count ||
+			 nearLimits.length      < count || farLimits.length           < count ||
+			 totals.length          < count || frontDistances.length      < count ||
+			 behindDistances.length < count || hyperfocalDistances.length < count )
+			throw new IllegalArgumentException("Batch arrays must all hold at least "+count+" entries");
+
+		// First pass - hyperfocal distances, in mm, parked in the output array
+		//
+		for ( int i = 0; i < count; i++ ) {
+			final double focalLength   = focalLengths[i];
+			final double exactAperture = ApertureTable.exactValue(apertures[i]);
+
+			hyperfocalDistances[i] = (focalLength * focalLength) / (exactAperture * circleOfConfusion) + focalLength;
+		}
+
+		// Second pass - the limits. Where the subject is at or beyond the
+		// hyperfocal distance the far limit is infinite, and infinity
+		// carries through the total and behind sums by itself.
+		//
+		for ( int i = 0; i < count; i++ ) {
+			final double hyperfocalDistance = hyperfocalDistances[i];         // In mm
+			final double distanceInMM       = distances[i] * 1000.0;
+
+			final double  hypTimesDistance  = hyperfocalDistance * distanceInMM;
+			final boolean atHyperfocal      = Math.abs(distanceInMM - hyperfocalDistance) < 0.000001;
+			final boolean infinite          = atHyperfocal || !(distanceInMM < hyperfocalDistance);
+
+			final double nearLimit = atHyperfocal ? hyperfocalDistance / 2
+					                              : hypTimesDistance / (hyperfocalDistance + distanceInMM);
+			final double farLimit  = infinite     ? Double.POSITIVE_INFINITY
+					                              : hypTimesDistance / (hyperfocalDistance - distanceInMM);
+
+			nearLimits[i]          = nearLimit / 1000.0;
+			farLimits[i]           = farLimit / 1000.0;
+			totals[i]              = (farLimit - nearLimit) / 1000.0;
+			frontDistances[i]      = (distanceInMM - nearLimit) / 1000.0;
+			behindDistances[i]     = (farLimit - distanceInMM) / 1000.0;
+			hyperfocalDistances[i] = hyperfocalDistance / 1000.0;
+		}
+	}
+}
@@ -0,0 +1,183 @@
+package org.derekfountain.dofc.m;
+
+/**
+ * The depth of field sums.
+ * <p>
+ * This is the calculation MVCModel does when its state changes, without
+ * the model's state or its listener.
+ * <p>
+ * An instance keeps the precomputed grid for the current body and range,
+ * if there is one. It's replaced, never changed, so one calculator can be
+ * shared between the UI thread and a background worker.
+ * <p>
+ * The hyperfocal distance only depends on the circle of confusion, the
+ * focal length and the aperture, so it's reused for as long as those
+ * don't change. Dragging the distance slider, the common case, never
+ * needs it recalculating. It's kept in the result set, which belongs to
+ * whoever is calculating, so reusing it needs no locking and changing it
+ * allocates nothing.
+ */
+public class DofCalculator {
+
+	// Optional precomputed results. If the grid covers the inputs the
+	// answer is picked out of it, otherwise the sums are done.
+	//
+	protected volatile DofGrid mGrid = null;
+
+	public DofGrid getGrid() {
+		return mGrid;
+	}
+	public void setGrid(DofGrid grid) {
+		this.mGrid = grid;
+	}
+
+	/**
+	 * Fills in the result set with the answers for the given body, lens,
+	 * range and inputs. If there's a precomputed grid for them the answer
+	 * is picked out of that, otherwise the sums are done, reusing the
+	 * hyperfocal distance the result set already holds if it can.
+	 *
+	 * @param body
+	 * @param lens
+	 * @param range
+	 * @param inputFocalLength     Focal length, in mm
+	 * @param inputAperture        Aperture value, 400 being f/4.0, etc.
+	 * @param inputSubjectDistance Subject distance, in m
+	 * @param result               Result set to fill in
+	 */
+	public void compute( Body body, Lens lens, Range range,
+			             int inputFocalLength, int inputAperture, double inputSubjectDistance,
+			             DofResult result )
+	{
+		final DofGrid grid = mGrid;
+		if ( grid != null && grid.isFor(body, range) &&
+			 grid.lookup(inputFocalLength, inputAperture, inputSubjectDistance, result) )
+			return;
+
+		final double circleOfConfusion = body.getCircleOfConfusion();
+
+		if ( result.mCachedFocalLength       != inputFocalLength ||
+			 result.mCachedAperture          != inputAperture ||
+			 result.mCachedCircleOfConfusion != circleOfConfusion ) {
+			result.mCachedHyperfocal        = hyperfocalDistance( inputFocalLength, inputAperture, circleOfConfusion );
+			result.mCachedFocalLength       = inputFocalLength;
+			result.mCachedAperture          = inputAperture;
+			result.mCachedCircleOfConfusion = circleOfConfusion;
+		}
+
+		calculateLimits( result.mCachedHyperfocal, inputSubjectDistance, circleOfConfusion, result );
+	}
+
+	/**
+	 * Does the depth of field sums for the given inputs, and fills in the
+	 * result set given with the answers.
+	 * <p>
+	 * This is the closed form calculation which everything else - the
+	 * precomputed grids included - is based on.
+	 *
+	 * @param inputFocalLength     Focal length, in mm
+	 * @param inputAperture        Aperture value, 400 being f/4.0, etc.
+	 * @param inputSubjectDistance Subject distance, in m
+	 * @param circleOfConfusion    Circle of confusion, in mm
+	 * @param result               Result set to fill in
+	 */
+	public static void calculate( int inputFocalLength, int inputAperture, double inputSubjectDistance,
+			                      double circleOfConfusion, DofResult result )
+	{
+		calculateLimits( hyperfocalDistance(inputFocalLength, inputAperture, circleOfConfusion),
+				         inputSubjectDistance, circleOfConfusion, result );
+	}
+
+	/**
+	 * Works out the hyperfocal distance for the given inputs.
+	 * 
+	 * @param inputFocalLength  Focal length, in mm
+	 * @param inputAperture     Aperture value, 400 being f/4.0, etc.
+	 * @param circleOfConfusion Circle of confusion, in mm
+	 * @return The hyperfocal distance, in mm
+	 */
+	public static double hyperfocalDistance( int inputFocalLength, int inputAperture, double circleOfConfusion )
+	{
+		final double focalLength = inputFocalLength;                        // In mm
+		
+        // Aperture is an integer like 400 for f/4.0. So look up the precise value
+        //
+        final double exactAperture = ApertureTable.exactValue(inputAperture);
+        
+        // Wikipedia says that adding the mFocalLength here is unnecessary, and in fact
+        // you have to search the page for mention of its "negligible" effect. Hmmm.
+        // All other implementations I've found add this value, and when you use the
+        // Hf distance in later calculations this "negligible" effect multiplies up
+        // to produce very wrong results in some cases. So I'm adding it, just like
+        // everyone else does.
+        //
+        // http://en.wikipedia.org/wiki/Depth_of_field#DOF_formulas
+        //        
+        return (focalLength * focalLength) / (exactAperture * circleOfConfusion) + focalLength;
+	}
+	
+	/**
+	 * Works out the depth of field limits for a subject at the given
+	 * distance, given the hyperfocal distance, and fills in the result
+	 * set with the answers.
+	 * 
+	 * @param hyperfocalDistance   Hyperfocal distance, in mm
+	 * @param inputSubjectDistance Subject distance, in m
+	 * @param circleOfConfusion    Circle of confusion, in mm
+	 * @param result               Result set to fill in
+	 */
+	public static void calculateLimits( double hyperfocalDistance, double inputSubjectDistance,
+			                            double circleOfConfusion, DofResult result )
+	{
+        // The distance slider slides across the depth of the range. It returns the
+        // correct represented distance in metres. Use a double in mm for calculations.
+        //
+        final double distanceInMM = inputSubjectDistance * 1000.0;
+        
+        final double hypTimesDistance = (hyperfocalDistance * distanceInMM);
+        final double hypPlusDistance  = (hyperfocalDistance + distanceInMM);
+        final double hypMinusDistance = (hyperfocalDistance - distanceInMM);
+        
+        double nearLimit;                                                  // In mm
+        if ( Math.abs(distanceInMM - hyperfocalDistance) < 0.000001 ) {
+        	
+        	// Subject is at exactly hyperfocal distance
+        	//
+        	nearLimit                = hyperfocalDistance / 2;
+        	result.mInfinite         = true;
+        }
+        else if ( distanceInMM < hyperfocalDistance ) {
+        	
+        	// Subject is closer than hyperfocal distance
+        	//
+        	nearLimit                = hypTimesDistance / hypPlusDistance;
+        	final double farLimit    = hypTimesDistance / hypMinusDistance;   // In mm
+        	
+        	result.mInfinite         = false;
+        	result.mFarLimit         = farLimit / 1000.0;                     // In m
+        	result.mBehindDistance   = (farLimit - distanceInMM) / 1000.0;    // In m
+        	result.mTotal            = (farLimit - nearLimit) / 1000.0;       // In m
+        }            
+        else {
+        	
+        	// Subject is beyond hyperfocal distance
+        	//
+        	nearLimit                = hypTimesDistance / hypPlusDistance;
+        	result.mInfinite         = true;
+        }
+        
+        if ( result.mInfinite ) {
+        	result.mFarLimit         = Double.POSITIVE_INFINITY;
+        	result.mBehindDistance   = Double.POSITIVE_INFINITY;
+        	result.mTotal            = Double.POSITIVE_INFINITY;
+        }
+		
+        // Calculations complete - convert these values from mm to m, which is what the app expects
+        //
+        result.mNearLimit          = nearLimit / 1000.0;
+        result.mFrontDistance      = (distanceInMM - nearLimit) / 1000.0;
+        result.mHyperfocalDistance = hyperfocalDistance / 1000.0;
+        result.mCircleOfConfusion  = circleOfConfusion;
+        result.mValid              = true;
+	}
+}
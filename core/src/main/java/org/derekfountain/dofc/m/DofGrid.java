@@ -0,0 +1,269 @@
+package org.derekfountain.dofc.m;
+
+/**
+ * Precomputed depth of field results for one body and range.
+ * <p>
+ * The common drag is the distance slider, with the focal length and the
+ * aperture left alone. For a given focal length and aperture the inputs
+ * that drag can produce are a short list: every whole metre in the range
+ * when the view is showing metres, or every whole foot when it's showing
+ * feet. A row holds the near and far limits for all of those, so the drag
+ * becomes an array lookup rather than a calculation.
+ * <p>
+ * A grid starts off empty. Rows are added as the model asks for them, one
+ * for each focal length and aperture the distance slider is dragged at,
+ * and only the MAX_ROWS most recent are kept. A whole grid, for every
+ * focal length and stop, would be far too big for most lenses; a row is
+ * a few thousand values at most.
+ * <p>
+ * Inputs which aren't in a row - a focal length or aperture without one,
+ * or a distance which isn't a whole number of metres or feet - aren't
+ * covered, and the model falls back to doing the sums. A row's values are
+ * worked out exactly as the sums would, so it makes no difference to the
+ * answers which way they come.
+ * <p>
+ * Rows are built off the UI thread, and never changed once built. The
+ * set of rows is replaced, never changed in place, so lookups can happen
+ * on any thread while a row is being added.
+ */
+public class DofGrid {
+
+	/**
+	 * Ranges whose rows would have more cells than this don't get a grid.
+	 * Each cell costs two doubles, so this keeps a row to 64k.
+	 */
+	protected static final int MAX_ROW_CELLS = 4096;
+
+	/**
+	 * Rows kept at once
+	 */
+	protected static final int MAX_ROWS      = 8;
+
+	protected final Body     mBody;
+	protected final Range    mRange;
+	protected final double   mCircleOfConfusion;
+
+	// The distances a row covers: whole metres from mMinMetres, then whole
+	// feet from mMinFeet, as the distance slider gives them
+	//
+	protected final int      mMinMetres;
+	protected final int      mMetreCount;
+	protected final int      mMinFeet;
+	protected final int      mFeetCount;
+
+	/**
+	 * The rows, most recently built first
+	 */
+	protected volatile Row[] mRows = new Row[0];
+
+	/**
+	 * The results for one focal length and aperture, all in metres. The
+	 * limits are indexed by distance, metres first, then feet.
+	 */
+	protected static final class Row {
+		protected final int      mFocalLength;
+		protected final int      mAperture;
+		protected final double   mHyperfocalDistance;
+		protected final double[] mNearLimits;
+		protected final double[] mFarLimits;
+
+		protected Row( int focalLength, int aperture, double hyperfocalDistance, int cells )
+		{
+			this.mFocalLength        = focalLength;
+			this.mAperture           = aperture;
+			this.mHyperfocalDistance = hyperfocalDistance;
+			this.mNearLimits         = new double[cells];
+			this.mFarLimits          = new double[cells];
+		}
+	}
+
+	/**
+	 * Makes an empty grid for the given body and range.
+	 *
+	 * @param body
+	 * @param range
+	 */
+	public DofGrid( Body body, Range range )
+	{
+		this.mBody              = body;
+		this.mRange             = range;
+		this.mCircleOfConfusion = body.getCircleOfConfusion();
+
+		this.mMinMetres         = range.getMinDistance();
+		this.mMetreCount        = range.getMaxDistance() - range.getMinDistance() + 1;
+		this.mMinFeet           = toFeet( range.getMinDistance() );
+		this.mFeetCount         = toFeet( range.getMaxDistance() ) - mMinFeet + 1;
+	}
+
+	/**
+	 * Answers the nearest whole number of feet to the given whole number
+	 * of metres, as the view works out the ends of the distance slider
+	 */
+	protected static int toFeet( int metres )
+	{
+		return (int)Math.rint( metres * MVCModel.FEET_PER_METRE );
+	}
+
+	/**
+	 * Answers true if a grid for the given range would have rows small
+	 * enough to be worth building.
+	 *
+	 * @param range
+	 * @return
+	 */
+	public static boolean fits( Range range )
+	{
+		long cells = (long)(range.getMaxDistance() - range.getMinDistance() + 1) +
+				     (toFeet(range.getMaxDistance()) - toFeet(range.getMinDistance()) + 1);
+
+		return range.getMinDistance() >= 0 && cells > 0 && cells <= MAX_ROW_CELLS;
+	}
+
+	/**
+	 * Answers true if this grid was built for the given body and range.
+	 * The lens makes no difference, beyond the inputs it allows.
+	 *
+	 * @param body
+	 * @param range
+	 * @return
+	 */
+	public boolean isFor( Body body, Range range )
+	{
+		return body == mBody && range == mRange &&
+			   body.getCircleOfConfusion() == mCircleOfConfusion;
+	}
+
+	/**
+	 * Answers true if there's a row for the given focal length and aperture
+	 *
+	 * @param focalLength Focal length, in mm
+	 * @param aperture    Aperture value, 400 being f/4.0, etc.
+	 * @return
+	 */
+	public boolean hasRow( int focalLength, int aperture )
+	{
+		return findRow( mRows, focalLength, aperture ) != null;
+	}
+
+	/**
+	 * Works out the row for the given focal length and aperture, and adds
+	 * it to the grid, pushing out the least recently built row if the grid
+	 * is full.
+	 * <p>
+	 * This is meant to be called on a background thread. It's safe to call
+	 * on more than one at once, though there's no point.
+	 *
+	 * @param focalLength Focal length, in mm
+	 * @param aperture    Aperture value, 400 being f/4.0, etc.
+	 */
+	public void buildRow( int focalLength, int aperture )
+	{
+		final double hyperfocalDistance = DofCalculator.hyperfocalDistance( focalLength, aperture, mCircleOfConfusion );
+		final Row    row                = new Row( focalLength, aperture, hyperfocalDistance / 1000.0, mMetreCount + mFeetCount );
+		DofResult    scratch            = new DofResult();
+
+		for ( int cell = 0; cell < row.mNearLimits.length; cell++ ) {
+			DofCalculator.calculateLimits( hyperfocalDistance, distanceOf(cell), mCircleOfConfusion, scratch );
+			row.mNearLimits[cell] = scratch.mNearLimit;
+			row.mFarLimits[cell]  = scratch.mFarLimit;
+		}
+
+		synchronized ( this ) {
+			Row[] rows    = mRows;
+			Row[] newRows = new Row[ Math.min(rows.length + 1, MAX_ROWS) ];
+			int   count   = 0;
+
+			newRows[count++] = row;
+			for ( int i = 0; i < rows.length && count < newRows.length; i++ ) {
+				if ( rows[i].mFocalLength != focalLength || rows[i].mAperture != aperture )
+					newRows[count++] = rows[i];
+			}
+
+			if ( count < newRows.length ) {
+				Row[] shorter = new Row[count];
+				System.arraycopy( newRows, 0, shorter, 0, count );
+				newRows = shorter;
+			}
+			mRows = newRows;
+		}
+	}
+
+	/**
+	 * Fills in the result set with the precomputed values for the given
+	 * inputs, if they're in the grid.
+	 *
+	 * @param focalLength Focal length, in mm
+	 * @param aperture    Aperture value, 400 being f/4.0, etc.
+	 * @param distance    Subject distance, in m
+	 * @param result      Result set to fill in
+	 * @return True if the result was filled in, false if the inputs
+	 *         aren't covered by this grid
+	 */
+	public boolean lookup( int focalLength, int aperture, double distance, DofResult result )
+	{
+		final Row row = findRow( mRows, focalLength, aperture );
+		if ( row == null )
+			return false;
+
+		final int cell = cellOf( distance );
+		if ( cell < 0 )
+			return false;
+
+		final double nearLimit = row.mNearLimits[cell];
+		final double farLimit  = row.mFarLimits[cell];
+
+		result.mInfinite           = (farLimit == Double.POSITIVE_INFINITY);
+		result.mNearLimit          = nearLimit;
+		result.mFarLimit           = farLimit;
+		result.mTotal              = farLimit - nearLimit;
+		result.mFrontDistance      = distance - nearLimit;
+		result.mBehindDistance     = farLimit - distance;
+		result.mHyperfocalDistance = row.mHyperfocalDistance;
+		result.mCircleOfConfusion  = mCircleOfConfusion;
+		result.mValid              = true;
+
+		return true;
+	}
+
+	protected static Row findRow( Row[] rows, int focalLength, int aperture )
+	{
+		for ( int i = 0; i < rows.length; i++ ) {
+			if ( rows[i].mFocalLength == focalLength && rows[i].mAperture == aperture )
+				return rows[i];
+		}
+		return null;
+	}
+
+	/**
+	 * Answers the distance, in metres, a row's cell is for. The feet are
+	 * converted exactly as the view converts the slider's value, so the
+	 * distances the model is given match these exactly.
+	 */
+	protected double distanceOf( int cell )
+	{
+		if ( cell < mMetreCount )
+			return mMinMetres + cell;
+
+		return (double)(mMinFeet + cell - mMetreCount) / MVCModel.FEET_PER_METRE;
+	}
+
+	/**
+	 * Answers the cell for the given distance, in metres, or -1 if it's
+	 * not a whole number of metres or feet in the range
+	 */
+	protected int cellOf( double distance )
+	{
+		final int metres = (int)distance;
+		if ( metres == distance ) {
+			final int cell = metres - mMinMetres;
+			return ( cell >= 0 && cell < mMetreCount ) ? cell : -1;
+		}
+
+		final double feet = Math.rint( distance * MVCModel.FEET_PER_METRE );
+		final double cell = feet - mMinFeet;
+		if ( cell < 0 || cell >= mFeetCount || feet / MVCModel.FEET_PER_METRE != distance )
+			return -1;
+
+		return mMetreCount + (int)cell;
+	}
+}
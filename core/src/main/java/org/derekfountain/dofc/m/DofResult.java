@@ -0,0 +1,112 @@
+package org.derekfountain.dofc.m;
+
+/**
+ * Result set of a depth of field calculation.
+ * <p>
+ * This holds nothing but primitive values so the model can fill in
+ * the same object every time it recalculates. Dragging a slider
+ * recalculates many times a second, and none of that should produce
+ * garbage.
+ * <p>
+ * Distances are in metres, as per the rest of the model. The circle of
+ * confusion is in mm, exactly as it comes from the body.
+ * <p>
+ * When the far limit of the depth of field is at infinity, isInfinite()
+ * answers true and the far limit, the total and the distance behind the
+ * subject are all set to Double.POSITIVE_INFINITY.
+ */
+public class DofResult {
+
+	/**
+	 * False until the model has completed its first calculation
+	 */
+	protected boolean mValid              = false;
+
+	/**
+	 * True if the far limit is at infinity
+	 */
+	protected boolean mInfinite           = false;
+
+	protected double  mNearLimit          = 0;
+	protected double  mFarLimit           = 0;
+	protected double  mTotal              = 0;
+	protected double  mFrontDistance      = 0;
+	protected double  mBehindDistance     = 0;
+	protected double  mHyperfocalDistance = 0;
+	protected double  mCircleOfConfusion  = 0;
+
+	// The last hyperfocal distance DofCalculator worked out into this
+	// result set, in mm, and what it was worked out from. A focal length
+	// of 0 means there isn't one. These aren't results, so they're left
+	// out of copyFrom() and scaleDistances().
+	//
+	protected int     mCachedFocalLength       = 0;
+	protected int     mCachedAperture          = 0;
+	protected double  mCachedCircleOfConfusion = 0;
+	protected double  mCachedHyperfocal        = 0;
+
+	public boolean isValid() {
+		return mValid;
+	}
+	public boolean isInfinite() {
+		return mInfinite;
+	}
+	public double getNearLimit() {
+		return mNearLimit;
+	}
+	public double getFarLimit() {
+		return mFarLimit;
+	}
+	public double getTotal() {
+		return mTotal;
+	}
+	public double getFrontDistance() {
+		return mFrontDistance;
+	}
+	public double getBehindDistance() {
+		return mBehindDistance;
+	}
+	public double getHyperfocalDistance() {
+		return mHyperfocalDistance;
+	}
+	public double getCircleOfConfusion() {
+		return mCircleOfConfusion;
+	}
+
+	/**
+	 * Copies the values of another result set into this one.
+	 *
+	 * @param other Result set to copy from
+	 */
+	public void copyFrom( DofResult other )
+	{
+		this.mValid              = other.mValid;
+		this.mInfinite           = other.mInfinite;
+		this.mNearLimit          = other.mNearLimit;
+		this.mFarLimit           = other.mFarLimit;
+		this.mTotal              = other.mTotal;
+		this.mFrontDistance      = other.mFrontDistance;
+		this.mBehindDistance     = other.mBehindDistance;
+		this.mHyperfocalDistance = other.mHyperfocalDistance;
+		this.mCircleOfConfusion  = other.mCircleOfConfusion;
+	}
+
+	/**
+	 * Multiplies all the distances by the given factor. This is used
+	 * by the view to convert the metric values to feet.
+	 * <p>
+	 * The circle of confusion isn't a distance in this sense, so it's
+	 * left alone. Infinite values stay infinite.
+	 *
+	 * @param factor
+	 */
+	public void scaleDistances( double factor )
+	{
+		mNearLimit          *= factor;
+		mFarLimit           *= factor;
+		mTotal              *= factor;
+		mFrontDistance      *= factor;
+		mBehindDistance     *= factor;
+		mHyperfocalDistance *= factor;
+	}
+}
@@ -0,0 +1,107 @@
+package org.derekfountain.dofc.m;
+
+import java.util.Collection;
+
+/**
+ * Lens class, defines a user's lens.
+ * <p>
+ * Lenses can't be changed once they're made. The objects the catalogue
+ * answers are shared by everything using it, possibly on more than one
+ * thread.
+ */
+public class Lens {
+
+	protected final String                 mName; 
+
+	/**
+	 * Position of this lens in the list of known lenses, or -1 if
+	 * it didn't come from there
+	 */
+	protected final int                    mIndex;
+	protected final int                    mMinLength;
+	protected final int                    mMaxLength;
+	protected final int                    mStartingLength;
+	protected final int                    mMinAperture;
+	protected final int                    mMaxAperture;
+	protected final int                    mStartingAperture;
+	protected final Collection<StopRange>  mStopRanges;
+	
+	public String getName() {
+		return mName;
+	}
+	public int getIndex() {
+		return mIndex;
+	}
+	public int getMinLength() {
+		return mMinLength;
+	}
+	public int getMaxLength() {
+		return mMaxLength;
+	}
+	public int getStartingLength() {
+		return mStartingLength;
+	}
+	public int getMinAperture() {
+		return mMinAperture;
+	}
+	public int getMaxAperture() {
+		return mMaxAperture;
+	}
+	public int getStartingAperture() {
+		return mStartingAperture;
+	}
+	public Collection<StopRange> getStopRanges()
+	{
+		return mStopRanges;
+	}
+	
+	
+	/**
+	 * Constructor sets the default values as given.
+	 * 
+	 * @param name
+	 * @param minLength
+	 * @param maxLength
+	 * @param startingLength
+	 * @param minAperture
+	 * @param maxAperture
+	 * @param startingAperture
+	 * @param stopRanges
+	 */
+	public Lens(String name,
+			    int minLength,   int maxLength,   int startingLength,
+			    int minAperture, int maxAperture, int startingAperture,
+			    Collection<StopRange> stopRanges ) {
+		this( name, minLength, maxLength, startingLength,
+		      minAperture, maxAperture, startingAperture, stopRanges, -1 );
+	}
+	
+	/**
+	 * Constructor for a lens in the catalogue's list
+	 * 
+	 * @param name
+	 * @param minLength
+	 * @param maxLength
+	 * @param startingLength
+	 * @param minAperture
+	 * @param maxAperture
+	 * @param startingAperture
+	 * @param stopRanges
+	 * @param index Position in the list
+	 */
+	protected Lens(String name,
+			       int minLength,   int maxLength,   int startingLength,
+			       int minAperture, int maxAperture, int startingAperture,
+			       Collection<StopRange> stopRanges, int index ) {
+		super();
+		this.mIndex            = index;
+		this.mName             = name;
+		this.mMinLength        = minLength;
+		this.mMaxLength        = maxLength;
+		this.mStartingLength   = startingLength;
+		this.mMinAperture      = minAperture;
+		this.mMaxAperture      = maxAperture;
+		this.mStartingAperture = startingAperture;
+		this.mStopRanges       = stopRanges;
+	}
+}
@@ -0,0 +1,441 @@
+package org.derekfountain.dofc.m;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Model code.
+ * <p>
+ * All model code holds distances in metric. The view converts as required.
+ * <p>
+ * The model has no Android dependencies. It tells whatever is showing it
+ * about changes through the ModelListener interface, and logs through
+ * java.util.logging, which Android passes on to its own log.
+ * 
+ */
+public class MVCModel {
+	
+	protected static final Logger LOG = Logger.getLogger( "Model.stateChange" );
+	
+	/**
+	 * For converting between the distances the model uses and the ones the
+	 * view shows when it's set to imperial units
+	 */
+	public static final double FEET_PER_METRE = 3.2808399;
+	
+	/**
+	 * The single low priority thread shared by all the models, which builds
+	 * the rows of their precomputed grids
+	 */
+	protected static ExecutorService mGridBuilder = null;
+	
+	// Internal model structures
+	//
+	protected Body  mBody = null;
+	protected Lens  mLens = null;
+	protected Range mRange = null;
+	
+	// Listener, normally the view, to notify changes to
+	//
+	protected ModelListener mListener = null;
+	
+	// Inputs of the last calculation. These are only meaningful once
+	// mHaveInputs is true.
+	//
+	protected boolean mHaveInputs  = false;
+	protected int     mFocalLength = 0;
+	protected int     mAperture    = 0;
+	protected double  mDistance    = 0;
+
+	// Result set. This object is filled in place on every calculation,
+	// so the view must not hang on to it expecting it to stay unchanged.
+	//
+	protected final DofResult mResult = new DofResult();
+	
+	// Optional precomputed results for the current body and range. When
+	// the distance slider is dragged, a row of the grid for the focal
+	// length and aperture is built on the grid builder thread. Until it's
+	// ready, or if the precompute option is off, the results are
+	// calculated directly. The build in progress, and what it's for, are
+	// only used on the UI thread.
+	//
+	protected boolean          mPrecompute     = false;
+	protected Future<?>        mRowBuild       = null;
+	protected int              mRowFocalLength = 0;
+	protected int              mRowAperture    = 0;
+	
+	// Does the sums, and keeps the grid and anything else it can reuse
+	// from one calculation to the next. It's shared with the background
+	// worker, through computeResult().
+	//
+	protected final DofCalculator mCalculator = new DofCalculator();
+	
+	// Batched updates. While a batch is open, changes are recorded but
+	// nothing is recalculated, and the view isn't told. When the batch is
+	// committed everything is brought up to date in one go.
+	//
+	protected int     mBatchDepth   = 0;
+	protected boolean mGridChanged  = false;
+	protected boolean mStateChanged = false;
+	
+	public Body getBody() {
+		return mBody;
+	}
+	public Lens getLens() {
+		return mLens;
+	}
+	public Range getRange() {
+		return mRange;
+	}
+	public int getFocalLength() {
+		return mFocalLength;
+	}
+	public DofResult getResult() {
+		return mResult;
+	}
+	public boolean isValidState() {
+		
+		// This will always be valid if the calculations have happened
+		//		
+		return mResult.isValid();
+	}
+	public void setListener(ModelListener listener) {
+		this.mListener = listener;
+	}
+	public boolean isPrecompute() {
+		return mPrecompute;
+	}
+	
+	/**
+	 * Switches the precomputed results grid on or off.
+	 * 
+	 * @param precompute
+	 */
+	public void setPrecompute(boolean precompute) {
+		this.mPrecompute = precompute;
+		rebuildGrid();
+	}
+	
+	public boolean isUpdating() {
+		return mBatchDepth > 0;
+	}
+	
+	/**
+	 * Opens a batch of changes. Until the matching commitUpdate() the
+	 * body, lens, range and input changes are just recorded.
+	 * <p>
+	 * Batches can be nested; only the outermost commit does anything.
+	 */
+	public void beginUpdate()
+	{
+		mBatchDepth++;
+	}
+	
+	/**
+	 * Closes a batch of changes opened by beginUpdate(). If this is the
+	 * outermost batch, and anything changed, the model is recalculated
+	 * once and the view told once.
+	 */
+	public void commitUpdate()
+	{
+		if ( mBatchDepth == 0 )
+			throw new IllegalStateException("commitUpdate() without beginUpdate()");
+		
+		if ( --mBatchDepth > 0 )
+			return;
+		
+		if ( mGridChanged ) {
+			mGridChanged = false;
+			rebuildGrid();
+		}
+		
+		if ( mStateChanged ) {
+			mStateChanged = false;
+			if ( mHaveInputs )
+				stateChange( mFocalLength, mAperture, mDistance );
+		}
+	}
+	
+	public MVCModel(Body body, Lens lens, Range range) {
+		super();
+		this.mBody  = body;
+		this.mLens  = lens;	
+		this.mRange = range;	
+	}
+
+	/**
+	 * Responds to user initiated state change and recalculates all the
+	 * internal values.
+	 * <p>
+	 * The controller calls this method when the model's
+	 * state needs to be changed, normally, but not necessarily,
+	 * as a result of user input.
+	 * <p>
+	 * The controller will have made sure the values are sane, so
+	 * they can be trusted.
+	 */
+	public void stateChange( int inputFocalLength, int inputAperture, double inputSubjectDistance )
+	{
+		/*
+		 * Update the model state - do the calculations.
+		 */
+		if ( LOG.isLoggable(Level.FINEST) )
+			LOG.finest(String.format("Inputs of focal length: %d, aperture: %d, distance: %f",
+					                     inputFocalLength, inputAperture, inputSubjectDistance));
+
+		boolean distanceDrag = isDistanceDrag( inputFocalLength, inputAperture, inputSubjectDistance );
+		
+		mHaveInputs  = true;
+		mFocalLength = inputFocalLength;
+		mAperture    = inputAperture;
+		mDistance    = inputSubjectDistance;
+		
+		if ( mBatchDepth > 0 ) {
+			mStateChanged = true;
+			return;
+		}
+
+		mCalculator.compute( mBody, mLens, mRange, inputFocalLength, inputAperture, inputSubjectDistance, mResult );
+		if ( distanceDrag )
+			requestRow( inputFocalLength, inputAperture );
+        
+		if ( LOG.isLoggable(Level.FINEST) )
+			LOG.finest(String.format("Yields near limit of: %f, far limit: %f",
+					                     mResult.mNearLimit, mResult.mFarLimit));
+
+		// Tell the view that the model state has changed
+		//
+		notifyListener();
+	}
+	
+	/**
+	 * Works out the results for the given body, lens, range and inputs
+	 * without changing the model's state, and puts them in the given
+	 * result set.
+	 * <p>
+	 * This is safe to call from any thread, as long as nothing else is
+	 * using the result set. It's used by the controller to do the work off
+	 * the UI thread; the result is then handed back to applyResult() on
+	 * the UI thread.
+	 * 
+	 * @param body
+	 * @param lens
+	 * @param range
+	 * @param inputFocalLength     Focal length, in mm
+	 * @param inputAperture        Aperture value, 400 being f/4.0, etc.
+	 * @param inputSubjectDistance Subject distance, in m
+	 * @param result               Result set to fill in
+	 */
+	public void computeResult( Body body, Lens lens, Range range,
+			                   int inputFocalLength, int inputAperture, double inputSubjectDistance,
+			                   DofResult result )
+	{
+		mCalculator.compute( body, lens, range, inputFocalLength, inputAperture, inputSubjectDistance, result );
+	}
+	
+	/**
+	 * Makes the given result, worked out by computeResult(), the model's
+	 * current state, and tells the view.
+	 * <p>
+	 * If the body, lens or range have changed since the result was worked
+	 * out it's out of date, and is dropped.
+	 * 
+	 * @return True if the result was applied, false if it was out of date
+	 */
+	public boolean applyResult( Body body, Lens lens, Range range,
+			                    int inputFocalLength, int inputAperture, double inputSubjectDistance,
+			                    DofResult result )
+	{
+		if ( body != mBody || lens != mLens || range != mRange )
+			return false;
+		
+		if ( isDistanceDrag(inputFocalLength, inputAperture, inputSubjectDistance) )
+			requestRow( inputFocalLength, inputAperture );
+		
+		mHaveInputs  = true;
+		mFocalLength = inputFocalLength;
+		mAperture    = inputAperture;
+		mDistance    = inputSubjectDistance;
+		mResult.copyFrom( result );
+		
+		notifyListener();
+		return true;
+	}
+	
+	protected void notifyListener()
+	{
+		if ( mListener != null )
+			mListener.modelHasChanged();
+	}
+	
+	/**
+	 * Stops precomputing, and lets go of the grid. This is for when
+	 * whatever is showing the model goes away, so a row being built for
+	 * it doesn't carry on.
+	 */
+	public void release()
+	{
+		mPrecompute = false;
+		rebuildGrid();
+	}
+	
+	/**
+	 * Throws away any precomputed grid and, if precomputing is switched on,
+	 * starts a new, empty one for the current body and range. Its rows are
+	 * built as the distance slider is dragged.
+	 * <p>
+	 * Any row build which hasn't finished is abandoned.
+	 */
+	protected void rebuildGrid()
+	{
+		if ( mRowBuild != null ) {
+			mRowBuild.cancel( true );
+			mRowBuild = null;
+		}
+		mCalculator.setGrid( null );
+		
+		if ( !mPrecompute || mBody == null || mRange == null || !DofGrid.fits(mRange) )
+			return;
+		
+		mCalculator.setGrid( new DofGrid(mBody, mRange) );
+	}
+	
+	/**
+	 * Answers true if the given inputs differ from the last ones only in
+	 * the distance, which is the drag a grid row is built for
+	 */
+	protected boolean isDistanceDrag( int inputFocalLength, int inputAperture, double inputSubjectDistance )
+	{
+		return mHaveInputs && inputFocalLength == mFocalLength && inputAperture == mAperture &&
+			   inputSubjectDistance != mDistance;
+	}
+	
+	/**
+	 * Starts building the grid row for the given focal length and aperture
+	 * on the grid builder thread, if there's a grid and it hasn't got one.
+	 * A row still waiting to be built for other inputs isn't needed any
+	 * more, and is abandoned.
+	 * <p>
+	 * This only happens when a distance drag starts at a new focal length
+	 * or aperture, so the task it allocates isn't a cost per input.
+	 */
+	protected void requestRow( final int focalLength, final int aperture )
+	{
+		final DofGrid grid = mCalculator.getGrid();
+		if ( grid == null || grid.hasRow(focalLength, aperture) )
+			return;
+		
+		if ( mRowBuild != null && !mRowBuild.isDone() ) {
+			if ( mRowFocalLength == focalLength && mRowAperture == aperture )
+				return;
+			mRowBuild.cancel( false );
+		}
+		
+		mRowFocalLength = focalLength;
+		mRowAperture    = aperture;
+		mRowBuild       = getGridBuilder().submit( new Runnable() {
+			public void run() {
+				grid.buildRow( focalLength, aperture );
+			}
+		});
+	}
+	
+	/**
+	 * Answers the grid builder thread shared by all the models, starting
+	 * it if need be.
+	 */
+	protected static synchronized ExecutorService getGridBuilder()
+	{
+		if ( mGridBuilder == null ) {
+			mGridBuilder = Executors.newSingleThreadExecutor( new ThreadFactory() {
+				public Thread newThread( Runnable runnable ) {
+					Thread thread = new Thread( runnable, "DofGrid" );
+					thread.setDaemon( true );
+					thread.setPriority( Thread.MIN_PRIORITY );
+					return thread;
+				}
+			});
+		}
+		return mGridBuilder;
+	}
+	
+	/**
+	 * Brings everything up to date after a change to the body, lens or
+	 * range, or, in a batch, notes what needs doing.
+	 * <p>
+	 * The body and range change what the precomputed grid covers; a new
+	 * lens just changes which of its rows get asked for. Of the results,
+	 * only the body matters - its circle of confusion goes into the
+	 * hyperfocal distance, and its name is shown in the view - so the
+	 * results are only recalculated when the body changes. The lens and
+	 * range just set the limits of the sliders, and if those move the
+	 * view sends the new inputs through stateChange().
+	 * <p>
+	 * Pages pass their body, lens and range in again every time they're
+	 * shown, so the change methods ignore the ones already in use rather
+	 * than throw the grid away on every tab switch.
+	 * 
+	 * @param resultsChanged True if the change affects the results
+	 * @param gridChanged    True if the change affects the grid
+	 */
+	protected void modelChanged( boolean resultsChanged, boolean gridChanged )
+	{
+		if ( mBatchDepth > 0 ) {
+			mGridChanged  |= gridChanged;
+			mStateChanged |= resultsChanged;
+			return;
+		}
+		
+		if ( gridChanged )
+			rebuildGrid();
+		
+		if ( resultsChanged && mHaveInputs )
+			stateChange( mFocalLength, mAperture, mDistance );
+	}
+	
+	/**
+	 * Update the model when the body information changes.
+	 * 
+	 * @param newBody
+	 */
+	public void bodyChange( Body newBody )
+	{
+		if ( newBody == mBody )
+			return;
+		
+		this.mBody = newBody;
+		modelChanged( true, true );
+	}
+
+	/**
+	 * Update the model when the lens information changes.
+	 * 
+	 * @param newLens
+	 */
+	public void lensChange( Lens newLens )
+	{
+		if ( newLens == mLens )
+			return;
+		
+		this.mLens = newLens;
+		modelChanged( false, false );
+	}
+
+	/**
+	 * Update the model when the range information changes.
+	 * 
+	 * @param newRange
+	 */
+	public void rangeChange( Range newRange )
+	{
+		if ( newRange == mRange )
+			return;
+		
+		this.mRange = newRange;
+		modelChanged( false, true );
+	}
+}
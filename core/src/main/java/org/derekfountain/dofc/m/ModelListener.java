@@ -0,0 +1,18 @@
+package org.derekfountain.dofc.m;
+
+/**
+ * Implemented by whatever wants telling when the model's state changes.
+ * <p>
+ * In the app this is the view. The model only knows it through this
+ * interface, so it can be run without one - in the benchmarks, or on a
+ * server generating tables, for instance.
+ */
+public interface ModelListener {
+
+	/**
+	 * Called on the model's thread, normally the UI thread, after the
+	 * model has a new result set. The result set is the model's own,
+	 * refilled in place, so it must be read straight away.
+	 */
+	public void modelHasChanged();
+}
@@ -0,0 +1,70 @@
+package org.derekfountain.dofc.m;
+
+/**
+ * Class to define a distance range.
+ * <p>
+ * Ranges can't be changed once they're made. The objects the catalogue
+ * answers are shared by everything using it, possibly on more than one
+ * thread.
+ */
+public class Range {
+	protected final String name;
+
+	/**
+	 * Position of this range in the list of known ranges, or -1 if
+	 * it didn't come from there
+	 */
+	protected final int    index;
+	
+	protected final int    minDistance;
+	protected final int    maxDistance;
+	protected final int    startingDistance;
+	
+	public String getName() {
+		return name;
+	}
+	public int getIndex() {
+		return index;
+	}
+	public int getMinDistance() {
+		return minDistance;
+	}
+	public int getMaxDistance() {
+		return maxDistance;
+	}
+	public int getStartingDistance() {
+		return startingDistance;
+	}
+	
+	/**
+	 * Constructor for range.
+	 * <p>
+	 * Distances are in metres.
+	 * 
+	 * @param name
+	 * @param minDistance
+	 * @param maxDistance
+	 * @param startingDistance
+	 */
+	public Range(String name, int minDistance, int maxDistance, int startingDistance) {
+		this( name, minDistance, maxDistance, startingDistance, -1 );
+	}
+	
+	/**
+	 * Constructor for a range in the catalogue's list
+	 * 
+	 * @param name
+	 * @param minDistance
+	 * @param maxDistance
+	 * @param startingDistance
+	 * @param index Position in the list
+	 */
+	protected Range(String name, int minDistance, int maxDistance, int startingDistance, int index) {
+		super();
+		this.name             = name;
+		this.minDistance      = minDistance;
+		this.maxDistance      = maxDistance;
+		this.startingDistance = startingDistance;
+		this.index            = index;
+	}
+}
@@ -0,0 +1,212 @@
+package org.derekfountain.dofc.m;
+
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Enumeration defining the ranges of f-stops a lens can use.
+ * <p>
+ *   http://en.wikipedia.org/wiki/F-number#Fractional_stops
+ * <p>
+ * Most (all?) lenses use the standard full stop scale. My Canon
+ * ones use the third stop scale. I added quarter and half stop
+ * scales too.
+ * <p>
+ * Lenses are defined as having one or more of these ranges, and
+ * the GUI's aperture slider needs the array of values found
+ * in them so it knows which values to jump between.
+ * <p>
+ * Each range carries its aperture values - 400 is f/4.0, etc. - in
+ * ascending order, along with the power of the square root of 2
+ * which gives the exact f-number for each one. The model's aperture
+ * table is built from these, so this is the one place the supported
+ * apertures are defined.
+ */
+public enum StopRange {
+
+	// Full stops
+	//
+	FULL( new int[]    { 100, 140, 200, 280, 400, 560, 800, 1100, 1600, 2200, 3200, 4500, 6400 },
+		  new double[] { 0,   1,   2,   3,   4,   5,   6,   7,    8,    9,    10,   11,   12 } ),
+
+	// Quarter stops
+	// 220 (power of 2.25), 1000 (power of 6.75) and 1400 (power of 7.5) are
+	// left out - they're labelled the same as a third stop value, and the
+	// third stop scale takes precedence. 
+	//
+	QUARTER( new int[]    { 260,  340, 370,  440,  520,  620,  730,  870,  1200, 1500, 1700, 2100 },
+			 new double[] { 2.75, 3.5, 3.75, 4.25, 4.75, 5.25, 5.75, 6.25, 7.25, 7.75, 8.25, 8.75 } ),
+
+	// Third stops
+	// f/1.2 is used to label both power of 0.666 and power of 0.5  depending on lens/manufacturer
+	// f/2.2 is used to label both power of 2.333 and power of 2.25 depending on lens/manufacturer
+	// f/10  is used to label both power of 6.666 and power of 6.75 depending on lens/manufacturer
+	// f/13  is used to label both power of 7.333 and power of 7.5  depending on lens/manufacturer
+	// f/14  is used to label both power of 7.666 and power of 7.5  depending on lens/manufacturer
+	// In these cases I favour the value produced by the one third stop scale
+	//
+	THIRD( new int[]    { 110,          120,          160,          180,          220,
+			              250,          320,          350,          450,          500,
+			              630,          710,          900,          1000,         1300,
+			              1400,         1800,         2000,         2500,         2800 },
+		   new double[] { 0.3333333333, 0.6666666666, 1.3333333333, 1.6666666666, 2.3333333333,
+			              2.6666666666, 3.3333333333, 3.6666666666, 4.3333333333, 4.6666666666,
+			              5.3333333333, 5.6666666666, 6.3333333333, 6.6666666666, 7.3333333333,
+			              7.6666666666, 8.3333333333, 8.6666666666, 9.3333333333, 9.6666666666 } ),
+
+	// Half stops.
+	// Power of 3.5 is labelled as f/3.3 or f/3.4 depending on lens/manufacturer
+	// Power of 7.5 is labelled as f/13  or f/14  depending on lens/manufacturer
+	// Hence the duplicate values with different labels. 120 (power of 0.5) and
+	// 1300 (power of 7.5) are left to the third stop scale.
+	//
+	HALF( new int[]    { 170, 240, 330, 480, 670, 950, 1900 },
+		  new double[] { 1.5, 2.5, 3.5, 4.5, 5.5, 6.5, 8.5 } );
+
+	private final int[]    mValues;
+	private final double[] mPowers;
+
+	/**
+	 * The merged values for every combination of stop ranges, indexed by
+	 * a bit set with bit n being ordinal n. There are only 15 non-empty
+	 * combinations, so they're all worked out once up front and shared by
+	 * every lens and every slider.
+	 */
+	private static final int[][] mCombinedValues;
+
+	static {
+		StopRange[] stopRanges = values();
+		
+		mCombinedValues = new int[1 << stopRanges.length][];
+		mCombinedValues[0] = new int[0];
+		
+		// Each combination is the one with its highest range left out,
+		// which has already been done, merged with that range
+		//
+		for ( int mask = 1; mask < mCombinedValues.length; mask++ ) {
+			int highest = 31 - Integer.numberOfLeadingZeros( mask );
+			mCombinedValues[mask] = merge( mCombinedValues[mask & ~(1 << highest)],
+					                       stopRanges[highest].mValues );
+		}
+	}
+
+	private StopRange( int[] values, double[] powers )
+	{
+		this.mValues = values;
+		this.mPowers = powers;
+	}
+
+	/**
+	 * Answers the aperture values in this range, in ascending order.
+	 * <p>
+	 * The array is shared, so callers must not modify it.
+	 *
+	 * @return Array of aperture values, 400 being f/4.0, etc.
+	 */
+	public int[] getValues()
+	{
+		return mValues;
+	}
+
+	/**
+	 * Answers the powers of the square root of 2 matching the values
+	 * returned by getValues().
+	 * <p>
+	 * The array is shared, so callers must not modify it.
+	 *
+	 * @return Array of powers, one per aperture value
+	 */
+	double[] getPowers()
+	{
+		return mPowers;
+	}
+
+	/**
+	 * Answers the bit set representing the given stop ranges, bit n being
+	 * the range with ordinal n.
+	 *
+	 * @param stopRanges
+	 * @return
+	 */
+	public static int mask( Collection<StopRange> stopRanges )
+	{
+		int mask = 0;
+		for ( StopRange stopRange : stopRanges )
+			mask |= ( 1 << stopRange.ordinal() );
+		return mask;
+	}
+
+	/**
+	 * Answers all the aperture values in the given stop ranges, in
+	 * ascending order.
+	 * <p>
+	 * The array is shared, so callers must not modify it.
+	 *
+	 * @param stopRanges
+	 * @return Array of aperture values, 400 being f/4.0, etc.
+	 */
+	public static int[] valuesOf( Collection<StopRange> stopRanges )
+	{
+		return mCombinedValues[ mask(stopRanges) ];
+	}
+
+	/**
+	 * Answers the position in the given values of the one closest to the
+	 * value given. Where the value is exactly half way between two of them
+	 * the higher one wins. Values outside the array snap to the end nearest
+	 * them.
+	 *
+	 * @param values Aperture values, in ascending order, as answered by
+	 *               valuesOf() or getValues()
+	 * @param value  Aperture value to find the closest to
+	 * @return
+	 */
+	public static int closestIndex( int[] values, int value )
+	{
+		int i = Arrays.binarySearch( values, value );
+		if ( i >= 0 )
+			return i;
+		
+		// Not found, so i is -(insertion point)-1. The value lies between
+		// the one before the insertion point and the one at it.
+		//
+		int above = -i - 1;
+		if ( above == 0 )
+			return 0;
+		if ( above == values.length )
+			return values.length - 1;
+		
+		if ( (value-values[above-1]) < (values[above]-value) )
+			return above - 1;
+		else
+			return above;
+	}
+
+	/**
+	 * Merges two ascending arrays into a new ascending array, dropping
+	 * any value which appears in both.
+	 */
+	private static int[] merge( int[] a, int[] b )
+	{
+		int[] merged = new int[a.length + b.length];
+		int   i = 0, j = 0, k = 0;
+		
+		while ( i < a.length || j < b.length ) {
+			int value;
+			if ( j == b.length || (i < a.length && a[i] <= b[j]) )
+				value = a[i++];
+			else
+				value = b[j++];
+			
+			if ( k == 0 || merged[k-1] != value )
+				merged[k++] = value;
+		}
+		
+		if ( k == merged.length )
+			return merged;
+		
+		int[] trimmed = new int[k];
+		System.arraycopy( merged, 0, trimmed, 0, k );
+		return trimmed;
+	}
+}
@@ -0,0 +1,332 @@
+package org.derekfountain.dofc.v;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Formats numbers with a fixed number of decimal places, with an optional
+ * prefix and suffix, into a reusable character buffer.
+ * <p>
+ * This does the job String.format("%.2fm", value) used to do for the on
+ * screen values, without parsing a format string or creating a Formatter
+ * and a new String every time. The labels are updated for every step of a
+ * slider drag, so that was a lot of garbage.
+ * <p>
+ * The formatter is a CharSequence, so it can be handed to anything which
+ * takes one. The contents change every time it's used though, so whatever
+ * it's handed to must use it straight away rather than keep it. For the
+ * widgets which do keep what they're given, getBuffer() and length() give
+ * the characters to pass to the char[] versions of setText(), drawText(),
+ * etc. A TextView given the buffer that way keeps hold of it, so each
+ * TextView needs a formatter of its own.
+ * <p>
+ * The decimal separator is the one for the default locale, as used by
+ * String.format(). Values are rounded half up, away from zero, from their
+ * shortest decimal form - the digits Double.toString() gives - so 1.005
+ * comes out as 1.01, as it does from String.format(), even though the
+ * nearest double is a shade under 1.005. Negative values which round to
+ * zero keep their sign, "-0.00", as they do from String.format() too.
+ * Infinity and NaN come out the way Double.toString() does them, which is
+ * what String.format() does as well.
+ * <p>
+ * Instances aren't thread safe. They're meant to be used on the UI thread.
+ */
+public class FixedPointFormatter implements CharSequence {
+
+	/**
+	 * Values this big or bigger won't fit in a long once scaled, so they
+	 * fall back to Double.toString(). No distance gets anywhere near it.
+	 */
+	protected static final double MAX_FIXED = 1e15;
+
+	/**
+	 * Scaled values below this are within a small fraction of a unit of
+	 * their shortest decimal form, so adding a half and truncating rounds
+	 * them correctly unless they're very close to a half. Those, and
+	 * anything bigger, are rounded with BigDecimal instead. That allocates,
+	 * but only a few values in a thousand need it.
+	 */
+	protected static final double MAX_EXACT      = 1e12;
+	protected static final double HALF_TOLERANCE = 1e-3;
+
+	protected final int   mDecimals;
+	protected final long  mScale;
+	protected final char  mDecimalSeparator;
+
+	protected String      mPrefix = "";
+	protected String      mSuffix = "";
+
+	protected char[]      mBuffer;
+	protected int         mLength = 0;
+
+	/**
+	 * The contents before the last call to update() or updateText(), for
+	 * working out whether the text has changed. This is only allocated
+	 * if those are used.
+	 */
+	protected char[]      mPrevious       = null;
+	protected int         mPreviousLength = -1;
+	protected boolean     mUpdated        = false;
+
+	/**
+	 * Constructor.
+	 *
+	 * @param decimals Number of decimal places to show
+	 * @param prefix   Text to put before the number, or null for none
+	 * @param suffix   Text to put after the number, or null for none
+	 */
+	public FixedPointFormatter( int decimals, String prefix, String suffix )
+	{
+		if ( decimals < 0 || decimals > 9 )
+			throw new IllegalArgumentException("Unsupported number of decimal places: "+decimals);
+
+		long scale = 1;
+		for ( int i = 0; i < decimals; i++ )
+			scale *= 10;
+
+		this.mDecimals         = decimals;
+		this.mScale            = scale;
+		this.mDecimalSeparator = new DecimalFormatSymbols( Locale.getDefault() ).getDecimalSeparator();
+		this.mBuffer           = new char[32];
+
+		setPrefix( prefix );
+		setSuffix( suffix );
+	}
+
+	public FixedPointFormatter( int decimals )
+	{
+		this( decimals, null, null );
+	}
+
+	public String getPrefix() {
+		return mPrefix;
+	}
+	public void setPrefix( String prefix ) {
+		this.mPrefix = ( prefix == null ) ? "" : prefix;
+	}
+	public String getSuffix() {
+		return mSuffix;
+	}
+	public void setSuffix( String suffix ) {
+		this.mSuffix = ( suffix == null ) ? "" : suffix;
+	}
+
+	/**
+	 * Answers the buffer holding the formatted text. This is only valid
+	 * until the formatter is next used, and can be replaced by a bigger
+	 * one if the text grows.
+	 *
+	 * @return
+	 */
+	public char[] getBuffer()
+	{
+		return mBuffer;
+	}
+
+	/**
+	 * Formats the given value, with the prefix and suffix.
+	 *
+	 * @param value
+	 * @return This formatter, holding the result
+	 */
+	public FixedPointFormatter format( double value )
+	{
+		if ( Double.isNaN(value) || Double.isInfinite(value) || Math.abs(value) >= MAX_FIXED ) {
+			mLength = 0;
+			append( mPrefix );
+			append( Double.toString(value) );
+			append( mSuffix );
+			return this;
+		}
+
+		ensureCapacity( mPrefix.length() + 21 + mDecimals + mSuffix.length() );
+		mLength = 0;
+		append( mPrefix );
+
+		if ( value < 0 || (value == 0 && 1/value < 0) )
+			mBuffer[mLength++] = '-';
+
+		// Round half up, away from zero, as String.format() does. That
+		// rounds the shortest decimal form of the value, not the exact
+		// value of the double, so a value which is very nearly a half
+		// after scaling could go either way, and needs BigDecimal to
+		// settle it
+		//
+		double abs          = Math.abs( value );
+		double scaledValue  = abs * mScale;
+		double fraction     = scaledValue - Math.floor( scaledValue );
+
+		if ( scaledValue >= MAX_EXACT || Math.abs(fraction - 0.5) < HALF_TOLERANCE ) {
+			String digits = BigDecimal.valueOf( abs ).setScale( mDecimals, RoundingMode.HALF_UP ).toPlainString();
+			append( digits );
+			if ( mDecimals > 0 )
+				mBuffer[mLength - mDecimals - 1] = mDecimalSeparator;
+			append( mSuffix );
+			return this;
+		}
+
+		long scaled = (long)( scaledValue + 0.5 );
+
+		appendDigits( scaled / mScale, 1 );
+
+		if ( mDecimals > 0 ) {
+			mBuffer[mLength++] = mDecimalSeparator;
+			appendDigits( scaled % mScale, mDecimals );
+		}
+
+		append( mSuffix );
+		return this;
+	}
+
+	/**
+	 * Sets the contents to the given text, with no prefix or suffix. This
+	 * is for the cases where there's no number to show, infinity for instance.
+	 *
+	 * @param text
+	 * @return This formatter, holding the text
+	 */
+	public FixedPointFormatter setText( String text )
+	{
+		mLength = 0;
+		append( text );
+		return this;
+	}
+
+	/**
+	 * Formats the given value, as format() does, and answers whether that
+	 * changed the text. This lets the caller skip updating whatever shows
+	 * the text when there's nothing new to show. The first update always
+	 * counts as a change.
+	 *
+	 * @param value
+	 * @return True if the text is different from before
+	 */
+	public boolean update( double value )
+	{
+		savePrevious();
+		format( value );
+		return isChanged();
+	}
+
+	/**
+	 * Sets the contents to the given text, as setText() does, and answers
+	 * whether that changed the text.
+	 *
+	 * @param text
+	 * @return True if the text is different from before
+	 */
+	public boolean updateText( String text )
+	{
+		savePrevious();
+		setText( text );
+		return isChanged();
+	}
+
+	protected void savePrevious()
+	{
+		if ( mPrevious == null || mPrevious.length < mLength )
+			mPrevious = new char[mBuffer.length];
+
+		System.arraycopy( mBuffer, 0, mPrevious, 0, mLength );
+
+		// Until the first update there's nothing shown, so whatever comes
+		// next is a change
+		//
+		mPreviousLength = mUpdated ? mLength : -1;
+		mUpdated        = true;
+	}
+
+	protected boolean isChanged()
+	{
+		if ( mPreviousLength != mLength )
+			return true;
+
+		for ( int i = 0; i < mLength; i++ ) {
+			if ( mBuffer[i] != mPrevious[i] )
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Answers true if this holds the same characters as the given sequence.
+	 *
+	 * @param other
+	 * @return
+	 */
+	public boolean contentEquals( CharSequence other )
+	{
+		if ( other == null || other.length() != mLength )
+			return false;
+
+		for ( int i = 0; i < mLength; i++ ) {
+			if ( mBuffer[i] != other.charAt(i) )
+				return false;
+		}
+		return true;
+	}
+
+	public int length()
+	{
+		return mLength;
+	}
+
+	public char charAt( int index )
+	{
+		if ( index < 0 || index >= mLength )
+			throw new IndexOutOfBoundsException("Index "+index+", length "+mLength);
+		return mBuffer[index];
+	}
+
+	public CharSequence subSequence( int start, int end )
+	{
+		if ( start < 0 || end > mLength || start > end )
+			throw new IndexOutOfBoundsException("Range "+start+" to "+end+", length "+mLength);
+		return new String( mBuffer, start, end-start );
+	}
+
+	@Override
+	public String toString()
+	{
+		return new String( mBuffer, 0, mLength );
+	}
+
+	/**
+	 * Writes the given number into the buffer, padded with leading zeros
+	 * to at least the given number of digits.
+	 */
+	protected void appendDigits( long number, int minDigits )
+	{
+		int digits = 1;
+		for ( long n = number / 10; n > 0; n /= 10 )
+			digits++;
+		if ( digits < minDigits )
+			digits = minDigits;
+
+		for ( int i = mLength + digits - 1; i >= mLength; i-- ) {
+			mBuffer[i] = (char)( '0' + (number % 10) );
+			number /= 10;
+		}
+		mLength += digits;
+	}
+
+	protected void append( String text )
+	{
+		int textLength = text.length();
+		ensureCapacity( mLength + textLength );
+		text.getChars( 0, textLength, mBuffer, mLength );
+		mLength += textLength;
+	}
+
+	protected void ensureCapacity( int capacity )
+	{
+		if ( capacity <= mBuffer.length )
+			return;
+
+		char[] buffer = new char[ Math.max(capacity, mBuffer.length*2) ];
+		System.arraycopy( mBuffer, 0, buffer, 0, mLength );
+		mBuffer = buffer;
+	}
+}
@@ -0,0 +1,304 @@
+package org.derekfountain.dofc;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.derekfountain.dofc.m.Catalog;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+/**
+ * Checks PageStateCodec gets back what it was given, with and without a
+ * catalogue, and rejects anything it can't read properly.
+ */
+public class PageStateCodecTest {
+
+	protected static Catalog mCatalog;
+
+	/**
+	 * Reads the app's compiled catalogue, res/raw/catalog.bin. The tests
+	 * run in core/, so that's normally one level up.
+	 */
+	@BeforeClass
+	public static void readCatalog() throws IOException
+	{
+		File        root = new File("res").isDirectory() ? new File(".") : new File("..");
+		InputStream in   = new FileInputStream( new File(root, "res/raw/catalog.bin") );
+		try {
+			mCatalog = Catalog.read( in );
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	protected static PageState pageState( String body, String lens, String range,
+			                              Integer focalLength, Integer aperture, Integer distance )
+	{
+		PageState pageState = new PageState();
+		pageState.setBodyName( body );
+		pageState.setLensName( lens );
+		pageState.setRangeName( range );
+		pageState.setFocalLength( focalLength );
+		pageState.setAperture( aperture );
+		pageState.setDistance( distance );
+		return pageState;
+	}
+
+	/**
+	 * A page state using the catalogue's defaults
+	 */
+	protected static PageState defaultState()
+	{
+		return pageState( mCatalog.getDefaultBody().getName(),
+				          mCatalog.getDefaultLens().getName(),
+				          mCatalog.getDefaultRange().getName(),
+				          Integer.valueOf(35), Integer.valueOf(560), Integer.valueOf(10) );
+	}
+
+	protected static void assertPageState( PageState expected, PageState actual )
+	{
+		assertEquals( expected.getBodyName(),    actual.getBodyName() );
+		assertEquals( expected.getLensName(),    actual.getLensName() );
+		assertEquals( expected.getRangeName(),   actual.getRangeName() );
+		assertEquals( expected.getFocalLength(), actual.getFocalLength() );
+		assertEquals( expected.getAperture(),    actual.getAperture() );
+		assertEquals( expected.getDistance(),    actual.getDistance() );
+	}
+
+	/**
+	 * Encodes and decodes the page state with a codec, and checks it comes
+	 * back the same
+	 */
+	protected static byte[] roundTrip( PageStateCodec codec, PageState pageState ) throws IOException
+	{
+		byte[] data = codec.encode( pageState );
+		assertPageState( pageState, codec.decodeOne(data) );
+		return data;
+	}
+
+	/**
+	 * Checks the data is rejected
+	 */
+	protected static void assertRejected( PageStateCodec codec, byte[] data )
+	{
+		try {
+			codec.decode( data );
+			fail("Decoded "+Arrays.toString(data));
+		}
+		catch ( IOException e ) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testWithCatalog() throws IOException
+	{
+		byte[] data = roundTrip( new PageStateCodec(mCatalog), defaultState() );
+
+		// The names are all catalogue positions, so it's short
+		//
+		assertTrue( data.length < 20 );
+	}
+
+	@Test
+	public void testWithoutCatalog() throws IOException
+	{
+		PageStateCodec codec = new PageStateCodec( null );
+		byte[]         data  = roundTrip( codec, defaultState() );
+
+		// No catalogue positions, so any codec can read it
+		//
+		assertPageState( defaultState(), new PageStateCodec(mCatalog).decodeOne(data) );
+	}
+
+	@Test
+	public void testEveryCatalogName() throws IOException
+	{
+		PageStateCodec codec = new PageStateCodec( mCatalog );
+
+		for ( int i = 0; i < mCatalog.getBodies().size(); i++ )
+			roundTrip( codec, pageState(mCatalog.getBodies().get(i).getName(), null, null, null, null, null) );
+		for ( int i = 0; i < mCatalog.getLenses().size(); i++ )
+			roundTrip( codec, pageState(null, mCatalog.getLenses().get(i).getName(), null, null, null, null) );
+		for ( int i = 0; i < mCatalog.getRanges().size(); i++ )
+			roundTrip( codec, pageState(null, null, mCatalog.getRanges().get(i).getName(), null, null, null) );
+	}
+
+	@Test
+	public void testNullFields() throws IOException
+	{
+		PageStateCodec codec = new PageStateCodec( mCatalog );
+
+		roundTrip( codec, new PageState() );
+		roundTrip( codec, pageState(null, mCatalog.getDefaultLens().getName(), null, null, Integer.valueOf(400), null) );
+		roundTrip( codec, pageState(mCatalog.getDefaultBody().getName(), null, null, Integer.valueOf(50), null, null) );
+		roundTrip( codec, pageState(null, null, mCatalog.getDefaultRange().getName(), null, null, Integer.valueOf(3)) );
+
+		// Every combination of present and missing fields
+		//
+		PageState full = defaultState();
+		for ( int flags = 0; flags < 64; flags++ ) {
+			roundTrip( codec, pageState( ((flags & 0x01) != 0) ? full.getBodyName()    : null,
+					                     ((flags & 0x02) != 0) ? full.getLensName()    : null,
+					                     ((flags & 0x04) != 0) ? full.getRangeName()   : null,
+					                     ((flags & 0x08) != 0) ? full.getFocalLength() : null,
+					                     ((flags & 0x10) != 0) ? full.getAperture()    : null,
+					                     ((flags & 0x20) != 0) ? full.getDistance()    : null ) );
+		}
+	}
+
+	@Test
+	public void testNamesNotInCatalog() throws IOException
+	{
+		String[] names = {
+			"",
+			"My body",
+			"Lens | with | bars",
+			"Range?name=far&x=1",
+			"|?|?",
+			"Café Ångström",
+			"カメラ",
+			"Emoji 📷",
+			"Fifty characters or so, which is long for a name...",
+		};
+
+		PageStateCodec withCatalog    = new PageStateCodec( mCatalog );
+		PageStateCodec withoutCatalog = new PageStateCodec( null );
+		for ( String name : names ) {
+			assertNull( mCatalog.findBody(name) );
+			PageState pageState = pageState( name, name, name, Integer.valueOf(1), Integer.valueOf(2), Integer.valueOf(3) );
+			roundTrip( withCatalog,    pageState );
+			roundTrip( withoutCatalog, pageState );
+		}
+
+		// Some in the catalogue and some not
+		//
+		roundTrip( withCatalog, pageState(mCatalog.getDefaultBody().getName(), "Not | a lens?", mCatalog.getDefaultRange().getName(),
+				                          Integer.valueOf(35), Integer.valueOf(560), Integer.valueOf(10)) );
+	}
+
+	@Test
+	public void testNegativeValues() throws IOException
+	{
+		PageStateCodec codec  = new PageStateCodec( mCatalog );
+		int[]          values = { 0, -1, 1, -2, 63, -64, 64, -65, 8191, -8192, 1000000, -1000000,
+				                   Integer.MAX_VALUE, Integer.MIN_VALUE };
+
+		for ( int value : values )
+			roundTrip( codec, pageState(null, null, null, Integer.valueOf(value), Integer.valueOf(-value), Integer.valueOf(value)) );
+
+		// Small negative numbers stay small
+		//
+		byte[] minusOne = codec.encode( pageState(null, null, null, Integer.valueOf(-1), null, null) );
+		byte[] empty    = codec.encode( new PageState() );
+		assertEquals( empty.length + 1, minusOne.length );
+	}
+
+	@Test
+	public void testList() throws IOException
+	{
+		PageStateCodec  codec      = new PageStateCodec( mCatalog );
+		List<PageState> pageStates = new ArrayList<PageState>();
+		pageStates.add( defaultState() );
+		pageStates.add( new PageState() );
+		pageStates.add( pageState("Somebody | else", null, null, Integer.valueOf(-5), null, null) );
+
+		ArrayList<PageState> decoded = codec.decode( codec.encode(pageStates) );
+		assertEquals( pageStates.size(), decoded.size() );
+		for ( int i = 0; i < pageStates.size(); i++ )
+			assertPageState( pageStates.get(i), decoded.get(i) );
+
+		assertTrue( codec.decode(codec.encode(new ArrayList<PageState>())).isEmpty() );
+	}
+
+	@Test
+	public void testDecodeOneRejectsList() throws IOException
+	{
+		PageStateCodec  codec      = new PageStateCodec( mCatalog );
+		List<PageState> pageStates = new ArrayList<PageState>();
+		pageStates.add( defaultState() );
+		pageStates.add( defaultState() );
+
+		try {
+			codec.decodeOne( codec.encode(pageStates) );
+			fail("Decoded two page states as one");
+		}
+		catch ( IOException e ) {
+			// Expected
+		}
+	}
+
+	@Test
+	public void testFingerprintMismatch() throws IOException
+	{
+		PageStateCodec codec = new PageStateCodec( mCatalog );
+		byte[]         data  = codec.encode( defaultState() );
+
+		// Write the same record with a header for a different catalogue
+		//
+		PageStateCodec.Output header = new PageStateCodec.Output( 16 );
+		header.writeByte( PageStateCodec.VERSION );
+		header.writeVarint( mCatalog.getFingerprint() );
+		int headerLength = header.mLength;
+
+		PageStateCodec.Output other = new PageStateCodec.Output( 16 );
+		other.writeByte( PageStateCodec.VERSION );
+		other.writeVarint( mCatalog.getFingerprint() + 1 );
+		for ( int i = headerLength; i < data.length; i++ )
+			other.writeByte( data[i] );
+
+		assertRejected( codec, other.toByteArray() );
+
+		// Positions need a catalogue to read them
+		//
+		assertRejected( new PageStateCodec(null), data );
+	}
+
+	@Test
+	public void testWrongVersion() throws IOException
+	{
+		byte[] data = new PageStateCodec( mCatalog ).encode( defaultState() );
+		data[0] = PageStateCodec.VERSION + 1;
+
+		assertRejected( new PageStateCodec(mCatalog), data );
+	}
+
+	@Test
+	public void testTruncated() throws IOException
+	{
+		PageStateCodec codec = new PageStateCodec( mCatalog );
+		byte[][]       datas = {
+			codec.encode( defaultState() ),
+			codec.encode( pageState("Not | in the catalogue é", null, null, null, null, Integer.valueOf(-1000000)) ),
+			new PageStateCodec( null ).encode( defaultState() ),
+		};
+
+		for ( byte[] data : datas ) {
+			for ( int length = 0; length < data.length; length++ )
+				assertRejected( codec, Arrays.copyOf(data, length) );
+		}
+	}
+
+	@Test
+	public void testTrailingBytes() throws IOException
+	{
+		PageStateCodec codec = new PageStateCodec( mCatalog );
+		byte[]         data  = codec.encode( defaultState() );
+
+		assertRejected( codec, Arrays.copyOf(data, data.length + 1) );
+
+		byte[] longer = Arrays.copyOf( data, data.length + 3 );
+		longer[data.length]     = 1;
+		longer[data.length + 1] = 2;
+		longer[data.length + 2] = 3;
+		assertRejected( codec, longer );
+	}
+}
@@ -0,0 +1,341 @@
+package org.derekfountain.dofc;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Checks StateJournal gets back what was written to it, and copes with
+ * files which have been cut short, damaged, or aren't journals at all.
+ */
+public class StateJournalTest {
+
+	protected File mFile;
+
+	/**
+	 * A journal whose next append can be made to fail part way through,
+	 * leaving half its records in the file, as a full disk would
+	 */
+	protected static class FailingJournal extends StateJournal {
+		protected boolean mFailNext = false;
+
+		protected FailingJournal( File file )
+		{
+			super( file );
+		}
+
+		@Override
+		protected void append( ByteArrayOutputStream records ) throws IOException
+		{
+			if ( !mFailNext ) {
+				super.append( records );
+				return;
+			}
+
+			mFailNext = false;
+			RandomAccessFile out = new RandomAccessFile( mFile, "rw" );
+			try {
+				out.seek( mLength );
+				out.write( records.toByteArray(), 0, records.size() / 2 );
+			}
+			finally {
+				out.close();
+			}
+			throw new IOException("No space left on device");
+		}
+	}
+
+	@Before
+	public void setUp() throws IOException
+	{
+		mFile = File.createTempFile( "journal", ".dat" );
+		assertTrue( mFile.delete() );
+	}
+
+	@After
+	public void tearDown()
+	{
+		new File( mFile.getPath()+StateJournal.BAD_SUFFIX ).delete();
+		new File( mFile.getPath()+".new" ).delete();
+		mFile.delete();
+	}
+
+	protected static byte[] bytes( String value )
+	{
+		return value.getBytes();
+	}
+
+	protected static Map<String,byte[]> changes( String... namesAndValues )
+	{
+		LinkedHashMap<String,byte[]> changes = new LinkedHashMap<String,byte[]>();
+		for ( int i = 0; i < namesAndValues.length; i += 2 )
+			changes.put( namesAndValues[i], (namesAndValues[i+1] == null) ? null : bytes(namesAndValues[i+1]) );
+		return changes;
+	}
+
+	protected static void assertValues( Map<String,byte[]> values, String... namesAndValues )
+	{
+		assertEquals( Arrays.asList(names(namesAndValues)), new ArrayList<String>(values.keySet()) );
+		for ( int i = 0; i < namesAndValues.length; i += 2 )
+			assertArrayEquals( namesAndValues[i], bytes(namesAndValues[i+1]), values.get(namesAndValues[i]) );
+	}
+
+	protected static String[] names( String... namesAndValues )
+	{
+		String[] names = new String[namesAndValues.length / 2];
+		for ( int i = 0; i < names.length; i++ )
+			names[i] = namesAndValues[i*2];
+		return names;
+	}
+
+	protected LinkedHashMap<String,byte[]> reopen() throws IOException
+	{
+		return new StateJournal( mFile ).open();
+	}
+
+	protected byte[] readFile() throws IOException
+	{
+		return new StateJournal( mFile ).readFile();
+	}
+
+	protected void writeFile( byte[] data ) throws IOException
+	{
+		FileOutputStream out = new FileOutputStream( mFile );
+		try {
+			out.write( data );
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	@Test
+	public void testMissingFile() throws IOException
+	{
+		StateJournal journal = new StateJournal( mFile );
+		assertTrue( journal.open().isEmpty() );
+		assertFalse( mFile.exists() );
+	}
+
+	@Test(expected = IOException.class)
+	public void testWriteBeforeOpen() throws IOException
+	{
+		new StateJournal( mFile ).write( changes("a", "1") );
+	}
+
+	@Test
+	public void testReplay() throws IOException
+	{
+		StateJournal journal = new StateJournal( mFile );
+		journal.open();
+		journal.write( changes("a", "1", "b", "2") );
+		journal.write( changes("a", null, "c", "3") );
+		journal.write( changes("b", "4", "d", null) );
+
+		assertEquals( mFile.length(), journal.getLength() );
+		assertValues( reopen(), "b", "4", "c", "3" );
+	}
+
+	@Test
+	public void testTornRecord() throws IOException
+	{
+		StateJournal journal = new StateJournal( mFile );
+		journal.open();
+		journal.write( changes("a", "1") );
+		long goodLength = journal.getLength();
+		journal.write( changes("b", "2") );
+
+		byte[] data = readFile();
+		writeFile( Arrays.copyOf(data, data.length - 3) );
+
+		StateJournal reopened = new StateJournal( mFile );
+		assertValues( reopened.open(), "a", "1" );
+		assertEquals( goodLength, reopened.getLength() );
+		assertEquals( goodLength, mFile.length() );
+	}
+
+	@Test
+	public void testChecksumMismatch() throws IOException
+	{
+		StateJournal journal = new StateJournal( mFile );
+		journal.open();
+		journal.write( changes("a", "1") );
+		long goodLength = journal.getLength();
+		journal.write( changes("b", "2") );
+		journal.write( changes("c", "3") );
+
+		// Damage the last byte of b's value. c is fine, but comes after
+		// it, so goes too.
+		//
+		byte[] data = readFile();
+		int    last = (int)goodLength + StateJournal.RECORD_HEADER_LENGTH + 1 + 2 + 1 + 4;
+		assertEquals( '2', data[last] );
+		data[last] = '9';
+		writeFile( data );
+
+		assertValues( reopen(), "a", "1" );
+		assertEquals( goodLength, mFile.length() );
+	}
+
+	@Test
+	public void testWrongMagic() throws IOException
+	{
+		byte[] data = "Not a journal at all".getBytes();
+		writeFile( data );
+
+		checkMovedAside( data );
+	}
+
+	@Test
+	public void testWrongVersion() throws IOException
+	{
+		StateJournal journal = new StateJournal( mFile );
+		journal.open();
+		journal.write( changes("a", "1") );
+
+		byte[] data = readFile();
+		data[7] = StateJournal.VERSION + 1;
+		writeFile( data );
+
+		checkMovedAside( data );
+	}
+
+	/**
+	 * Checks opening the file gives an empty journal, and the file has
+	 * been moved aside untouched
+	 */
+	protected void checkMovedAside( byte[] data ) throws IOException
+	{
+		File badFile = new File( mFile.getPath()+StateJournal.BAD_SUFFIX );
+
+		StateJournal journal = new StateJournal( mFile );
+		assertTrue( journal.open().isEmpty() );
+		assertFalse( mFile.exists() );
+		assertTrue( badFile.exists() );
+
+		journal.write( changes("b", "2") );
+		assertValues( reopen(), "b", "2" );
+
+		StateJournal bad = new StateJournal( badFile );
+		assertArrayEquals( data, bad.readFile() );
+	}
+
+	@Test
+	public void testCompaction() throws IOException
+	{
+		StateJournal journal = new StateJournal( mFile );
+		journal.open();
+		journal.write( changes("fixed", "x") );
+
+		char[] filler = new char[100];
+		Arrays.fill( filler, 'v' );
+		String value = new String( filler );
+
+		// The file grows by a record a write until the write which takes
+		// it past the minimum size, which shrinks it back to the two live
+		// values
+		//
+		long lastLength  = journal.getLength();
+		int  compactions = 0;
+		for ( int i = 0; i < 1000; i++ ) {
+			journal.write( changes("page", value+i) );
+			long length = journal.getLength();
+
+			assertEquals( mFile.length(), length );
+			assertTrue( length < StateJournal.MIN_COMPACT_LENGTH );
+			if ( length < lastLength ) {
+				assertTrue( lastLength > StateJournal.MIN_COMPACT_LENGTH - 200 );
+				assertTrue( length < 2 * (StateJournal.HEADER_LENGTH + 2 * StateJournal.RECORD_HEADER_LENGTH + 130) );
+				compactions++;
+			}
+			lastLength = length;
+		}
+		assertTrue( compactions > 1 );
+
+		assertValues( reopen(), "fixed", "x", "page", value+999 );
+	}
+
+	@Test
+	public void testNoCompactionWhenLive() throws IOException
+	{
+		StateJournal journal = new StateJournal( mFile );
+		journal.open();
+
+		// Every record is live, so however big the file gets it's never
+		// twice the size of what it holds
+		//
+		long lastLength = journal.getLength();
+		for ( int i = 0; i < 500; i++ ) {
+			journal.write( changes("page"+i, "0123456789012345678901234567890123456789") );
+			assertTrue( journal.getLength() > lastLength );
+			lastLength = journal.getLength();
+		}
+		assertTrue( lastLength > StateJournal.MIN_COMPACT_LENGTH );
+		assertEquals( 500, reopen().size() );
+	}
+
+	@Test
+	public void testWriteAfterFailedAppend() throws IOException
+	{
+		FailingJournal journal = new FailingJournal( mFile );
+		journal.open();
+		journal.write( changes("a", "1") );
+		long goodLength = journal.getLength();
+
+		journal.mFailNext = true;
+		try {
+			journal.write( changes("b", "2") );
+			fail("The write should have failed");
+		}
+		catch ( IOException e ) {
+			// Expected
+		}
+		assertEquals( goodLength, journal.getLength() );
+		assertTrue( mFile.length() > goodLength );
+
+		// The next write must neither go after the torn record nor lose
+		// the value whose write failed
+		//
+		journal.write( changes("c", "3") );
+		journal.write( changes("d", "4") );
+
+		assertEquals( mFile.length(), journal.getLength() );
+		assertValues( reopen(), "a", "1", "b", "2", "c", "3", "d", "4" );
+	}
+
+	@Test
+	public void testAppendCutsOffTail() throws IOException
+	{
+		StateJournal journal = new StateJournal( mFile );
+		journal.open();
+		journal.write( changes("a", "1") );
+
+		// Rubbish after the good records, from a write which failed
+		// without the journal knowing
+		//
+		RandomAccessFile out = new RandomAccessFile( mFile, "rw" );
+		try {
+			out.seek( journal.getLength() );
+			out.write( new byte[] { 0, 0, 0, 99, 1, 2, 3, 4, 5, 6, 7, 8, 9 } );
+		}
+		finally {
+			out.close();
+		}
+
+		journal.write( changes("b", "2") );
+		assertEquals( mFile.length(), journal.getLength() );
+		assertValues( reopen(), "a", "1", "b", "2" );
+	}
+}
@@ -0,0 +1,87 @@
+package org.derekfountain.dofc.v;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks FixedPointFormatter gives exactly what String.format() would.
+ */
+public class FixedPointFormatterTest {
+
+	protected void check( int decimals, double value )
+	{
+		FixedPointFormatter formatter = new FixedPointFormatter( decimals, "<", "m" );
+		String              expected  = String.format( "<%."+decimals+"fm", value );
+
+		assertEquals( "Formatting "+value+" to "+decimals+" places", expected, formatter.format(value).toString() );
+	}
+
+	@Test
+	public void testHalves()
+	{
+		// The nearest doubles to these are just under the half, but
+		// String.format() rounds them up
+		//
+		check( 2, 1.005 );
+		check( 2, 2.675 );
+		check( 2, 1.115 );
+		check( 1, 0.45 );
+		check( 3, 0.0005 );
+		check( 0, 0.5 );
+		check( 0, 2.5 );
+		check( 2, -1.005 );
+	}
+
+	@Test
+	public void testZeros()
+	{
+		check( 2, 0.0 );
+		check( 2, -0.0 );
+		check( 2, -0.001 );
+		check( 0, -0.4 );
+	}
+
+	@Test
+	public void testSweep()
+	{
+		for ( int decimals = 0; decimals <= 4; decimals++ ) {
+			for ( int i = -20000; i <= 20000; i++ ) {
+				check( decimals, i / 1000.0 );
+				check( decimals, i / 10000.0 );
+				check( decimals, i * 0.001 );
+			}
+		}
+	}
+
+	@Test
+	public void testRandom()
+	{
+		Random random = new Random( 42 );
+
+		for ( int i = 0; i < 100000; i++ ) {
+			int    decimals = random.nextInt( 10 );
+			double value    = (random.nextDouble() - 0.5) * Math.pow( 10, random.nextInt(16) );
+			check( decimals, value );
+		}
+	}
+
+	@Test
+	public void testLarge()
+	{
+		check( 2, 123456789012.345 );
+		check( 9, 123456.123456789 );
+		check( 9, 99999.9999999995 );
+		check( 0, 999999999999999.0 );
+	}
+
+	@Test
+	public void testSpecials()
+	{
+		check( 2, Double.NaN );
+		check( 2, Double.POSITIVE_INFINITY );
+		check( 2, Double.NEGATIVE_INFINITY );
+	}
+}
@@ -1,8 +1,17 @@
 package org.derekfountain.dofc;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 
+import org.derekfountain.dofc.m.Catalog;
+import org.derekfountain.dofc.m.CatalogLoader;
 import org.derekfountain.dofc.v.MVCView;
 
 import android.content.Context;
@@ -18,9 +27,19 @@ import android.util.Log;
  * logically that's where it belongs. But I think things
  * are a bit more readable if this is extracted out into
  * it's own class.
+ * <p>
+ * As well as going into the bundle, the state is kept in a
+ * StateStore, under the names "options", "tabs" and "page:"
+ * plus the tab name. That's what's used when the application
+ * starts afresh.
  * 
  */
-public class ApplicationState {
+public class ApplicationState implements StateStore.Source {
+
+	protected static final String OPTIONS_NAME     = "options";
+	protected static final String TABS_NAME        = "tabs";
+	protected static final String PAGE_NAME_PREFIX = "page:";
+
 	/**
 	 * Inner class holds application wide options.
 	 */
@@ -36,30 +55,35 @@ public class ApplicationState {
 		}
 		public void setUnits(MVCView.Units units) {
 			this.units = units;
+			changed( OPTIONS_NAME );
 		}
 		public String getLastUsedTabName() {
 			return lastUsedTabName;
 		}
 		public void setLastUsedTabName(String lastUsedTabName) {
 			this.lastUsedTabName = lastUsedTabName;
+			changed( OPTIONS_NAME );
 		}
 		public String getLastUsedBodyName() {
 			return lastUsedBodyName;
 		}
 		public void setLastUsedBodyName(String lastUsedBodyName) {
 			this.lastUsedBodyName = lastUsedBodyName;
+			changed( OPTIONS_NAME );
 		}
 		public String getLastUsedLensName() {
 			return lastUsedLensName;
 		}
 		public void setLastUsedLensName(String lastUsedLensName) {
 			this.lastUsedLensName = lastUsedLensName;
+			changed( OPTIONS_NAME );
 		}
 		public String getLastUsedRangeName() {
 			return lastUsedRangeName;
 		}
 		public void setLastUsedRangeName(String lastUsedRangeName) {
 			this.lastUsedRangeName = lastUsedRangeName;
+			changed( OPTIONS_NAME );
 		}
 		
 	}
@@ -89,11 +113,17 @@ public class ApplicationState {
 	//
 	protected Page activePage = null;
 
+	// The store the state is kept in, once the state has been
+	// restored. Until then changes aren't saved.
+	//
+	protected StateStore store = null;
+
 	public Options getOptions() {
 		return options;
 	}
 	public void setKnownTabs(ArrayList<String> knownTabs) {
 		this.knownTabs = knownTabs;
+		changed( TABS_NAME );
 	}
 	public ArrayList<String> getKnownTabs() {
 		return knownTabs;
@@ -115,12 +145,210 @@ public class ApplicationState {
 			activePage.getView().setUnits( DepthOfFieldCalc.getApplicationState().getOptions().getUnits() );
 	}
 	
+	/**
+	 * Called when tabs have been added, removed or moved around in
+	 * knownTabs, so the new list gets saved
+	 */
+	public void tabsChanged()
+	{
+		changed( TABS_NAME );
+	}
+
+	/**
+	 * Called when a tab's entry in knownPages has been added, changed or
+	 * removed, so the page gets saved, or forgotten
+	 *
+	 * @param tabName
+	 */
+	public void pageChanged( String tabName )
+	{
+		changed( PAGE_NAME_PREFIX+tabName );
+	}
+
+	/**
+	 * Called by a Page with its latest state. If the page's tab has been
+	 * deleted this does nothing.
+	 *
+	 * @param tabName
+	 * @param pageState
+	 */
+	public void updatePage( String tabName, PageState pageState )
+	{
+		if ( tabName == null || !knownPages.containsKey(tabName) )
+			return;
+
+		knownPages.put( tabName, pageState );
+		pageChanged( tabName );
+	}
+
+	protected void changed( String name )
+	{
+		if ( store != null )
+			store.changed( name );
+	}
+
+	/**
+	 * Starts saving the state in the given store. This is called once
+	 * the state has been restored, from wherever, and again each time the
+	 * activity is recreated. Only what differs from the store's contents
+	 * is written out, and anything in the store which isn't part of the
+	 * state is removed from it, so when the state came from the store, or
+	 * the activity has just been rotated, nothing is written at all.
+	 *
+	 * @param newStore
+	 */
+	protected void attachStore( StateStore newStore )
+	{
+		store = newStore;
+		store.setSource( this );
+
+		LinkedHashMap<String,byte[]> contents = store.getContents();
+		for ( String name : contents.keySet() ) {
+			if ( encode(name) == null )
+				store.changed( name );
+		}
+		attachValue( OPTIONS_NAME, contents );
+		attachValue( TABS_NAME, contents );
+		for ( String tabName : knownTabs )
+			attachValue( PAGE_NAME_PREFIX+tabName, contents );
+	}
+
+	/**
+	 * Marks the named value to be written if it's not already in the store
+	 * as it is now
+	 */
+	protected void attachValue( String name, LinkedHashMap<String,byte[]> contents )
+	{
+		if ( !Arrays.equals(encode(name), contents.get(name)) )
+			store.changed( name );
+	}
+
+	/**
+	 * Answers the current value of one of the names the state is kept
+	 * under in the store, or null if it's not part of the state any more.
+	 */
+	@Override
+	public byte[] encode( String name )
+	{
+		try {
+			if ( name.startsWith(PAGE_NAME_PREFIX) ) {
+				PageState pageState = knownPages.get( name.substring(PAGE_NAME_PREFIX.length()) );
+				return ( pageState == null ) ? null : new PageStateCodec( null ).encode( pageState );
+			}
+
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream      out   = new DataOutputStream( bytes );
+			if ( name.equals(OPTIONS_NAME) ) {
+				out.writeBoolean( options.getUnits() == MVCView.Units.METRIC );
+				writeOptionalString( out, options.getLastUsedTabName() );
+				writeOptionalString( out, options.getLastUsedBodyName() );
+				writeOptionalString( out, options.getLastUsedLensName() );
+				writeOptionalString( out, options.getLastUsedRangeName() );
+			}
+			else if ( name.equals(TABS_NAME) ) {
+				out.writeInt( knownTabs.size() );
+				for ( String tabName : knownTabs )
+					out.writeUTF( tabName );
+			}
+			else {
+				return null;
+			}
+			return bytes.toByteArray();
+		}
+		catch ( IOException e ) {
+			// Can't happen writing to memory
+			//
+			throw new IllegalStateException( e.toString() );
+		}
+	}
+
+	/**
+	 * Restores the application state from the store, as it was when the
+	 * application last ran. If the store has nothing in it this leaves
+	 * everything alone.
+	 *
+	 * @param context Context object used to find the catalogue
+	 * @param store
+	 * @return true if there were tabs in the store
+	 */
+	protected boolean restoreFromStore( Context context, StateStore store )
+	{
+		LinkedHashMap<String,byte[]> contents = store.getContents();
+		byte[]                       tabs     = contents.get( TABS_NAME );
+		if ( tabs == null )
+			return false;
+
+		try {
+			ArrayList<String> restoredTabs = new ArrayList<String>();
+			DataInputStream   in           = new DataInputStream( new ByteArrayInputStream(tabs) );
+			for ( int count = in.readInt(); count > 0; count-- )
+				restoredTabs.add( in.readUTF() );
+			if ( restoredTabs.isEmpty() )
+				return false;
+
+			byte[] savedOptions = contents.get( OPTIONS_NAME );
+			if ( savedOptions != null ) {
+				in = new DataInputStream( new ByteArrayInputStream(savedOptions) );
+				options.setUnits( in.readBoolean() ? MVCView.Units.METRIC : MVCView.Units.IMPERIAL );
+				options.setLastUsedTabName( readOptionalString(in) );
+				options.setLastUsedBodyName( readOptionalString(in) );
+				options.setLastUsedLensName( readOptionalString(in) );
+				options.setLastUsedRangeName( readOptionalString(in) );
+			}
+
+			// Pages are saved without reference to the catalogue, so they
+			// still read back after an update which changes it. A page which
+			// can't be read gets the defaults, rather than losing the tab.
+			//
+			Catalog        catalog = CatalogLoader.get( context );
+			PageStateCodec codec   = new PageStateCodec( null );
+			knownTabs  = restoredTabs;
+			knownPages = new HashMap<String,PageState>();
+			for ( String tabName : knownTabs ) {
+				PageState pageState = null;
+				byte[]    page      = contents.get( PAGE_NAME_PREFIX+tabName );
+				if ( page != null ) {
+					try {
+						pageState = codec.decodeOne( page );
+					}
+					catch ( IOException e ) {
+						Log.w("Application state, restoreFromStore", "Unreadable page "+tabName+": "+e.getMessage());
+					}
+				}
+				if ( pageState == null )
+					pageState = new PageState().setDefaults( catalog );
+
+				knownPages.put( tabName, pageState );
+			}
+		}
+		catch ( IOException e ) {
+			Log.w("Application state, restoreFromStore", "Unreadable saved state: "+e.getMessage());
+			return false;
+		}
+
+		Log.v("Application state, restoreFromStore", "Restored "+knownTabs.size()+" tabs");
+		return true;
+	}
+
+	protected static void writeOptionalString( DataOutputStream out, String value ) throws IOException
+	{
+		out.writeBoolean( value != null );
+		if ( value != null )
+			out.writeUTF( value );
+	}
+
+	protected static String readOptionalString( DataInputStream in ) throws IOException
+	{
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+	
 	/**
 	 * Writes out the current application settings to the android bundle
 	 * 
+	 * @param context Context object used to find the catalogue
 	 * @param bundle
 	 */
-	protected void saveToBundle( Bundle bundle )
+	protected void saveToBundle( Context context, Bundle bundle )
 	{
 		// Save global options
 		//
@@ -136,18 +364,20 @@ public class ApplicationState {
 		String[] knownPageNames = knownTabs.toArray( new String[]{} );
 		bundle.putStringArray("tab_names", knownPageNames );
 				
-		// Now loop over the pages the application is currently holding
-		// and save each one's last known state. This will save out all
-		// the pages the user has up, paused or destroyed, or not.
+		// Now save the last known state of each page the application is
+		// holding, in the same order. This covers all the pages the user
+		// has up, paused or destroyed, or not. They all go into one byte
+		// array; see PageStateCodec. If there are no tabs the catalogue
+		// might not be loaded yet, and there's nothing to save anyway.
 		//
 		Log.v("Application state, saveToBundle", "Saving "+knownTabs.size()+" tabs ");
-		for ( String tabName : knownTabs ) {
+		if ( !knownTabs.isEmpty() ) {
+			ArrayList<PageState> pageStatesToSave = new ArrayList<PageState>( knownTabs.size() );
+			for ( String tabName : knownTabs )
+				pageStatesToSave.add( knownPages.get(tabName) );
 
-			Log.v("Application state, saveToBundle", "Saving tab "+tabName);
-			PageState pageStateToSave = knownPages.get(tabName);
-			
-			String uriString = pageStateToSave.getUri().toString();
-			bundle.putString(tabName, uriString);
+			PageStateCodec codec = new PageStateCodec( CatalogLoader.get(context) );
+			bundle.putByteArray("tab_states", codec.encode(pageStatesToSave) );
 		}
 		
 	}
@@ -155,9 +385,10 @@ public class ApplicationState {
 	/**
 	 * Restores the current application settings from the given android bundle
 	 * 
+	 * @param context Context object used to find the catalogue
 	 * @param bundle
 	 */
-	protected void restoreFromBundle( Bundle bundle )
+	protected void restoreFromBundle( Context context, Bundle bundle )
 	{
 		// Restore global options
 		//
@@ -183,16 +414,46 @@ public class ApplicationState {
 			knownTabs.add(tabName);
 		}
 		Log.v("Application state, restoreFromBundle", "Restoring "+knownTabs.size()+" tabs");
+		if ( knownTabs.isEmpty() )
+			return;
 		
+		// The page states are in one array, in the same order as the
+		// tab names
+		//
+		Catalog              catalog        = CatalogLoader.get( context );
+		ArrayList<PageState> restoredStates = null;
+		byte[]               encodedStates  = bundle.getByteArray("tab_states");
+		if ( encodedStates != null ) {
+			try {
+				restoredStates = new PageStateCodec( catalog ).decode( encodedStates );
+				if ( restoredStates.size() != knownTabs.size() ) {
+					Log.w("Application state, restoreFromBundle", "Saved state has "+restoredStates.size()+" pages for "+knownTabs.size()+" tabs");
+					restoredStates = null;
+				}
+			}
+			catch ( IOException e ) {
+				Log.w("Application state, restoreFromBundle", "Unreadable saved pages: "+e.getMessage());
+			}
+		}
+
 		// For each tab, find the state of the Page in it and
-		// restore the known pages
+		// restore the known pages. A bundle saved by an older version
+		// has a URI string for each tab, keyed by the tab's name.
 		//
-		for ( String tabName : knownTabs ) {
+		for ( int i = 0; i < knownTabs.size(); i++ ) {
+			String tabName = knownTabs.get(i);
 			Log.v("Application state, restoreFromBundle", "Restoring tab "+tabName);
-			String restoredUriString = bundle.getString(tabName); 
-			Uri pageUri = Uri.parse( restoredUriString );
-			
-			PageState newPageState = new PageState( pageUri );
+
+			PageState newPageState;
+			if ( restoredStates != null ) {
+				newPageState = restoredStates.get(i);
+			}
+			else if ( bundle.getString(tabName) != null ) {
+				newPageState = PageStateUri.fromUri( Uri.parse(bundle.getString(tabName)) );
+			}
+			else {
+				newPageState = new PageState().setDefaults( catalog );
+			}
 			
 			knownPages.put(tabName, newPageState);
 		}
@@ -218,7 +479,7 @@ public class ApplicationState {
 		options.setUnits( MVCView.Units.METRIC );
 		options.setLastUsedTabName(defaultName);
 		
-		PageState defaultPage = new PageState().setDefaults( context );
+		PageState defaultPage = new PageState().setDefaults( CatalogLoader.get(context) );
 		
 		knownTabs.add(defaultName);
 		knownPages.put(defaultName, defaultPage);
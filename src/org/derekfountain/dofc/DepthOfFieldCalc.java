@@ -4,6 +4,8 @@ import java.util.ArrayList;
 import java.util.regex.Pattern;
 
 import org.derekfountain.dofc.m.Body;
+import org.derekfountain.dofc.m.Catalog;
+import org.derekfountain.dofc.m.CatalogLoader;
 import org.derekfountain.dofc.m.Lens;
 import org.derekfountain.dofc.m.Range;
 import org.derekfountain.dofc.v.MVCView;
@@ -16,7 +18,6 @@ import android.app.TabActivity;
 import android.content.DialogInterface;
 import android.content.Intent;
 import android.content.res.Resources;
-import android.net.Uri;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.LayoutInflater;
@@ -28,7 +29,6 @@ import android.widget.ArrayAdapter;
 import android.widget.EditText;
 import android.widget.RadioButton;
 import android.widget.Spinner;
-import android.widget.TabHost;
 import android.widget.Toast;
 
 /**
@@ -81,6 +81,21 @@ public class DepthOfFieldCalc extends TabActivity {
     public RotatingSpinner bodySpinner  = null;
     public RotatingSpinner lensSpinner  = null;
     public RotatingSpinner rangeSpinner = null;
+
+    /**
+     * Adds and removes the tabs in the TabHost one at a time
+     */
+    protected TabManager tabManager = null;
+    public TabManager getTabManager() {
+    	return tabManager;
+    }
+    
+    /**
+     * The page all the tabs show, if they share one. Whether they do is
+     * set by the shared_page resource, so it can differ from one kind of
+     * device to another.
+     */
+    protected SharedPage sharedPage = null;
 	
 	/**
 	 * The main "wrapping" Activity start point.
@@ -95,23 +110,49 @@ public class DepthOfFieldCalc extends TabActivity {
     @Override
     public void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
-      
-        setContentView(R.layout.depthoffieldcalc);
         
-        // Rebuild application state, either from saved bundle if we're
-        // restoring after being destroyed, or from scratch if this is
-        // a new run
+        // Get the catalogue of bodies, lenses and ranges loading in the
+        // background while the UI gets going
+        //
+        CatalogLoader.startLoading( this );
+
+        // Likewise the saved state from the last run
         //
-        if ( savedInstanceState != null )
-        	applicationState.restoreFromBundle(savedInstanceState);
-        else
-        	applicationState.restoreFromDefaults( this );
+        final StateStore store = StateStore.get( this );
+      
+        setContentView(R.layout.depthoffieldcalc);
+        tabManager = new TabManager( this );
+        if ( getResources().getBoolean(R.bool.shared_page) )
+        	sharedPage = new SharedPage( this, tabManager );
         
         // Start off this list as empty
         //
         previouslyDeletedTabs = new ArrayList<String>();
         
-        rebuildTabs();       
+        // Rebuild application state, either from saved bundle if we're
+        // restoring after being destroyed, or from the store if this is
+        // a new run, or from scratch if there's nothing in the store.
+        // If the process is still around from an earlier run the state
+        // is still in memory, and that's the latest. Whichever way, the
+        // catalogue is needed - the defaults come from it, and the saved
+        // pages refer to its entries - so this waits until the catalogue
+        // is ready. (If the app was saved before that happened the bundle
+        // has no tabs in it, so it's treated as a new run.)
+        //
+        final Bundle savedState = savedInstanceState;
+        CatalogLoader.whenLoaded( this, new Runnable() {
+        	public void run() {
+        		if ( savedState != null )
+        			applicationState.restoreFromBundle( DepthOfFieldCalc.this, savedState );
+
+        		if ( applicationState.getKnownTabs().isEmpty() &&
+        			 !applicationState.restoreFromStore( DepthOfFieldCalc.this, store ) )
+        			applicationState.restoreFromDefaults( DepthOfFieldCalc.this );
+
+        		applicationState.attachStore( store );
+        		rebuildTabs();
+        	}
+        });
     }
         
     /**
@@ -123,35 +164,61 @@ public class DepthOfFieldCalc extends TabActivity {
      */
     protected void rebuildTabs()
     {
-        // Loop over the known tabs recreating a tab in the GUI for each one
-        //
-        TabHost tabHost = getTabHost();
-
         // tabsToRebuild is the ordered list of tab names
         //
         ArrayList<String> tabsToRebuild = applicationState.getKnownTabs();
         Log.v("rebuildTabs", "Rebuilding "+tabsToRebuild.size()+" tabs");
-        
+
+        // Loop over the known tabs recreating a tab in the GUI for each one.
+        // This only makes the labels. Each tab has a matching entry in
+        // knownPages which describes the state of the page - slider values,
+        // etc - and the page picks that up when the tab is first selected.
+        //
         for ( String tabName : tabsToRebuild ) {
         	Log.v("rebuildTabs", "Rebuilding tab named "+tabName);
-        	
-        	// Each tab to rebuild has a matching entry in knownPages which
-        	// describes the state of the page - slider values, etc
-        	//
-        	PageState pageState = applicationState.getKnownPages().get(tabName);
-        	
-	        // Create the the intent to make the page appear
-	        //
-	        Intent intent  = new Intent().setClass(this, Page.class);
-	        Uri    pageUri = pageState.getUri();
-	        intent.setData(pageUri);
-
-	        // Create a new tab with Page activity
-	        //
-	        TabHost.TabSpec spec = tabHost.newTabSpec(tabName).setContent(intent);
-	        spec.setIndicator(tabName);
-	        tabHost.addTab(spec);
+	        addTab( tabName );
         }
+
+        // Adding the first tab selected it, which made its Page. If the
+        // manager didn't see that, the Page would never be trimmed.
+        //
+        String currentTab = getTabHost().getCurrentTabTag();
+        if ( currentTab != null && !tabManager.hasPage(currentTab) )
+        	Log.w("rebuildTabs", "Page for current tab "+currentTab+" isn't being tracked");
+
+        // The shared page was shown the first tab as it was selected. This
+        // makes sure of it, and does nothing if it's already showing.
+        //
+        if ( sharedPage != null && currentTab != null )
+        	sharedPage.show( currentTab );
+    }
+    
+    /**
+     * Adds a tab on the end for the given page. The page's state must
+     * already be in knownPages.
+     * 
+     * @param tabName
+     */
+    protected void addTab( String tabName )
+    {
+    	if ( sharedPage != null )
+    		tabManager.add( tabName, sharedPage );
+    	else
+    		tabManager.add( tabName, pageIntent(tabName) );
+    }
+    
+    /**
+     * Answers an intent which starts the Page for the given tab. The
+     * Page gets its state from the tab's entry in knownPages.
+     * 
+     * @param tabName Name of the Page's tab
+     * @return The intent
+     */
+    protected Intent pageIntent( String tabName )
+    {
+        Intent intent = new Intent().setClass(getApplicationContext(), Page.class);
+        intent.putExtra(Page.EXTRA_TAB_NAME, tabName);
+        return intent;
     }
     
     /**
@@ -164,7 +231,20 @@ public class DepthOfFieldCalc extends TabActivity {
     public void onSaveInstanceState( Bundle savedInstanceState )
     {
     	super.onSaveInstanceState(savedInstanceState);
-    	applicationState.saveToBundle(savedInstanceState);
+    	applicationState.saveToBundle(this, savedInstanceState);
+    }
+    
+    /**
+     * The system is short of memory. Get rid of all the pages except the
+     * one on show; their tabs stay, and they're made again from the
+     * application state when selected.
+     */
+    @Override
+    public void onLowMemory()
+    {
+    	super.onLowMemory();
+    	if ( tabManager != null )
+    		tabManager.trimPages( 1 );
     }
     
     /**
@@ -175,6 +255,8 @@ public class DepthOfFieldCalc extends TabActivity {
     @Override
     public void onDestroy()
     {
+    	if ( sharedPage != null )
+    		sharedPage.release();
     	super.onDestroy();
     }
     
@@ -219,6 +301,16 @@ public class DepthOfFieldCalc extends TabActivity {
     	if ( rangeSpinner != null ) {
     		rangeSpinner.dismissPoppedUpList();
     	}
+    	
+    	if ( sharedPage != null )
+    		sharedPage.pause();
+    	
+    	// The pages have paused by now and saved their state. Send anything
+    	// not yet written off to the state store, as the process may not
+    	// survive to its next write. The store writes on its own thread, so
+    	// this doesn't hold things up.
+    	//
+    	StateStore.get(this).flush();
     }
 
     /**
@@ -261,6 +353,13 @@ public class DepthOfFieldCalc extends TabActivity {
     		showDialog(NEW_TAB_DIALOG_ID);
     		return true;
 
+    	case R.id.menu_delete:
+    		// A Page deals with this itself, so this only happens when
+    		// the tabs share a page
+    		//
+    		deleteCurrentTab();
+    		return true;
+
     	case R.id.menu_units:
     		showDialog(UNITS_DIALOG_ID);
     		return true;
@@ -313,7 +412,7 @@ public class DepthOfFieldCalc extends TabActivity {
     		String lastUsedBodyName = applicationState.getOptions().getLastUsedBodyName();
     		int lastUsedBodyPosition = 0;
     		int i = 0;
-    		for ( Body body : Body.listBodies(this) ) {
+    		for ( Body body : CatalogLoader.get(this).getBodies() ) {
     			bodiesAdapter.add( body.getName() );
     			if ( body.getName().equals(lastUsedBodyName) )
     				lastUsedBodyPosition = i;
@@ -329,7 +428,7 @@ public class DepthOfFieldCalc extends TabActivity {
     		String lastUsedLensName = applicationState.getOptions().getLastUsedLensName();
     		int lastUsedLensPosition = 0;
     		i = 0;
-    		for ( Lens lens : Lens.listLenses(this) ) {
+    		for ( Lens lens : CatalogLoader.get(this).getLenses() ) {
     			lensAdapter.add( lens.getName() );    			
     			if ( lens.getName().equals(lastUsedLensName) )
     				lastUsedLensPosition = i;
@@ -345,7 +444,7 @@ public class DepthOfFieldCalc extends TabActivity {
     		String lastUsedRangeName = applicationState.getOptions().getLastUsedRangeName();
     		int lastUsedRangePosition = 0;
     		i = 0;
-    		for ( Range range : Range.listRanges(this) ) {
+    		for ( Range range : CatalogLoader.get(this).getRanges() ) {
     			rangeAdapter.add( range.getName() );    			
     			if ( range.getName().equals(lastUsedRangeName) )
     				lastUsedRangePosition = i;
@@ -396,13 +495,16 @@ public class DepthOfFieldCalc extends TabActivity {
 				public void onClick(DialogInterface dialog, int which) {
 					
 					RadioButton metricButton = (RadioButton)settingsLayout.findViewById(R.id.metricRadioButton);
+					MVCView     activeView   = getActiveView();
 					if ( metricButton.isChecked() ) {
 						applicationState.getOptions().setUnits(MVCView.Units.METRIC);
-						applicationState.getActivePage().getView().changeUnits(MVCView.Units.METRIC);
+						if ( activeView != null )
+							activeView.changeUnits(MVCView.Units.METRIC);
 					}
 					else {
 						applicationState.getOptions().setUnits(MVCView.Units.IMPERIAL);
-						applicationState.getActivePage().getView().changeUnits(MVCView.Units.IMPERIAL);							
+						if ( activeView != null )
+							activeView.changeUnits(MVCView.Units.IMPERIAL);
 					}
 				}
 			});
@@ -479,33 +581,49 @@ public class DepthOfFieldCalc extends TabActivity {
     	// careful to only do what should be done for the given intent.
     	//
     	if ( intent.getAction().equals( android.content.Intent.ACTION_DELETE ) ) {
-	    	TabHost tabHost = getTabHost();
-	    	
-	    	// Remove the current tab from both the list of pages in the app,
-	    	// and the ordered list of tabs
-	    	//
-	    	String tagToDelete = tabHost.getCurrentTabTag();
-	    	applicationState.getKnownPages().remove(tagToDelete);
-	    	applicationState.getKnownTabs().remove(tagToDelete);
-	    	applicationState.setActivePage(null);
-	        
-	    	// Add the name of the deleted tab to the list, so I can tell
-	    	// if the user reuses it. See comments at the declaration of
-	    	// previouslyDeletedTabs
-	    	//
-	    	previouslyDeletedTabs.add(tagToDelete);
-
-	    	// This appears to be necessary, otherwise the app hits a NPE in the tab widget
-	    	//
-	    	tabHost.setCurrentTab(0);
-
-	    	// Now wipe all tabs, then rebuild them all, minus the deleted one
-	    	//
-	    	tabHost.clearAllTabs();		
-	   		rebuildTabs();
+    		deleteCurrentTab();
     	}
     }
     
+    /**
+     * Deletes the current tab and its page
+     */
+    protected void deleteCurrentTab()
+    {
+    	// Remove the current tab from both the list of pages in the app,
+    	// and the ordered list of tabs
+    	//
+    	String tagToDelete = getTabHost().getCurrentTabTag();
+    	applicationState.getKnownPages().remove(tagToDelete);
+    	applicationState.getKnownTabs().remove(tagToDelete);
+    	applicationState.tabsChanged();
+    	applicationState.pageChanged(tagToDelete);
+    	applicationState.setActivePage(null);
+        
+    	// Add the name of the deleted tab to the list, so I can tell
+    	// if the user reuses it. See comments at the declaration of
+    	// previouslyDeletedTabs
+    	//
+    	previouslyDeletedTabs.add(tagToDelete);
+
+    	// Now take the tab out of the tab widget. The other tabs, and
+    	// their pages, are left as they are.
+    	//
+    	tabManager.remove(tagToDelete);
+    }
+    
+    /**
+     * Answers the view of the page on show, or null if there isn't one
+     */
+    protected MVCView getActiveView()
+    {
+    	if ( sharedPage != null )
+    		return sharedPage.getView();
+    	
+    	Page activePage = applicationState.getActivePage();
+    	return ( activePage != null ) ? activePage.getView() : null;
+    }
+    
     /**
      * Inner class to handle the click which makes a new tab appear.
      * <p>
@@ -571,6 +689,8 @@ public class DepthOfFieldCalc extends TabActivity {
 				//
 				applicationState.getKnownTabs().add(tabName);
 				applicationState.getKnownPages().put(tabName, newPage);
+				applicationState.tabsChanged();
+				applicationState.pageChanged(tabName);
     	
 				// Set the new page to have the user specified body, lens and range
 				//
@@ -580,21 +700,14 @@ public class DepthOfFieldCalc extends TabActivity {
 				
 				// Set appropriate default values on the sliders
 				//
-				newPage.setFocalLength( Lens.findLens(getApplicationContext(), lensName).getStartingLength() );
-				newPage.setAperture( Lens.findLens(getApplicationContext(), lensName).getStartingAperture() );
-				newPage.setDistance( Range.findRange(getApplicationContext(), rangeName).getStartingDistance() );
+				Catalog catalog = CatalogLoader.get( getApplicationContext() );
+				newPage.setFocalLength( catalog.findLens(lensName).getStartingLength() );
+				newPage.setAperture( catalog.findLens(lensName).getStartingAperture() );
+				newPage.setDistance( catalog.findRange(rangeName).getStartingDistance() );
 				
-				// Create an intent and use it to create the new Page
+				// Create the new tab. Its page is made when it's selected.
 				//
-				Uri pageUri = newPage.getUri();
-
-				Intent intent = new Intent().setClass(getApplicationContext(), Page.class);
-				intent.setData(pageUri);
-				
-				TabHost tabHost = getTabHost();
-				TabHost.TabSpec spec = tabHost.newTabSpec( tabName ).setContent(intent);
-				spec.setIndicator( tabName );
-				tabHost.addTab(spec);
+				addTab( tabName );
 				
 				// Update last used values so the dialog has sensible defaults next time
 				//
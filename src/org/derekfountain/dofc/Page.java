@@ -1,10 +1,13 @@
 package org.derekfountain.dofc;
 
+import java.io.IOException;
+
 import org.derekfountain.dofc.c.MVCController;
-import org.derekfountain.dofc.m.Body;
-import org.derekfountain.dofc.m.Lens;
+import org.derekfountain.dofc.m.Catalog;
+import org.derekfountain.dofc.m.CatalogLoader;
 import org.derekfountain.dofc.m.MVCModel;
-import org.derekfountain.dofc.m.Range;
+import org.derekfountain.dofc.m.ModelListener;
+import org.derekfountain.dofc.v.ApertureSlider;
 import org.derekfountain.dofc.v.MVCView;
 
 import android.app.Activity;
@@ -25,6 +28,19 @@ import android.view.MenuItem;
  */
 public class Page extends Activity {
 
+	/**
+	 * Intent extra holding the page's starting state, as encoded by
+	 * PageStateCodec.encode(PageState)
+	 */
+	public static final String EXTRA_PAGE_STATE = "org.derekfountain.dofc.PageState";
+
+	/**
+	 * Intent extra holding the name of the page's tab
+	 */
+	public static final String EXTRA_TAB_NAME   = "org.derekfountain.dofc.TabName";
+
+	protected String        tabName    = null;
+
 	protected PageState     pageState  = null;
 
 	protected MVCModel      model      = null;
@@ -49,6 +65,10 @@ public class Page extends Activity {
 	public void onCreate( Bundle savedInstanceState )
 	{
 		super.onCreate(savedInstanceState);
+
+		// The tab this page is in, which its state is saved under
+		//
+		tabName = getIntent().getStringExtra( EXTRA_TAB_NAME );
 		
         // Restore values for the page. They're restored into the Page's state object, from where the
         // onResume() code will unpack them in due course.
@@ -74,28 +94,66 @@ public class Page extends Activity {
         	pageState.setLensName(    new String  ( savedInstanceState.getString("LensName") ) );
         	pageState.setRangeName(   new String  ( savedInstanceState.getString("RangeName") ) );
         }
+        else if ( tabName != null && DepthOfFieldCalc.getApplicationState().getKnownPages().containsKey(tabName) ) {
+        	// Normally the values for the page are the ones the application
+        	// holds for its tab. The page isn't made until its tab is first
+        	// selected, and may have been thrown away and made again since,
+        	// so these are the latest.
+        	//
+        	pageState = DepthOfFieldCalc.getApplicationState().getKnownPages().get(tabName);
+        }
         else {
-    		// The values for the page are attached to the intent object that
-    		// kicked this activity into life. The intent was created by the
-    		// wrapping TabActivity when it restored the whole application
-    		// from saved state.
+    		// Otherwise the values for the page are attached to the intent
+    		// object that kicked this activity into life.
+    		//
+    		// They're in PageStateCodec's binary form. An intent holding the
+    		// older URI form is still accepted.
     		//
         	Intent intent     = getIntent();
+        	Catalog catalog   = CatalogLoader.get( this );
+
+        	byte[] encodedState = intent.getByteArrayExtra( EXTRA_PAGE_STATE );
+        	if ( encodedState != null ) {
+        		try {
+        			pageState = new PageStateCodec( catalog ).decodeOne( encodedState );
+        		}
+        		catch ( IOException e ) {
+        			Log.w("Page", "Unreadable page state in intent: "+e.getMessage());
+        		}
+        	}
 
-    		Uri    intentData = intent.getData();
-        	pageState = new PageState( intentData );
+        	if ( pageState == null ) {
+        		Uri intentData = intent.getData();
+        		pageState = ( intentData != null ) ? PageStateUri.fromUri( intentData )
+        		                                   : new PageState().setDefaults( catalog );
+        	}
         }
 		
         // Create the MVC components and tie them all together
         //
         model         = new MVCModel( null, null, null );
+        model.setPrecompute( true );
 		
 		view          = new MVCView( this );
 		setContentView(R.layout.main);
 		
+		// The aperture slider moves a stop at a time
+		//
+		((ApertureSlider)findViewById(R.id.Aperture)).setStopIndexMode( true );
+		
 		controller    = new MVCController();
+		controller.setBackground( true );
 		
-		model.setView( view );
+		// The view redraws on every change to the model, and the page's
+		// saved state is brought up to date. (That's cheap - the state
+		// store only writes it out every so often.)
+		//
+		model.setListener( new ModelListener() {
+			public void modelHasChanged() {
+				view.modelHasChanged();
+				saveState();
+			}
+		});
 		view.setModel( model );
 		
 		controller.setView( view );
@@ -153,17 +211,27 @@ public class Page extends Activity {
     	//
     	DepthOfFieldCalc.getApplicationState().setActivePage( this );
 
-		// Initialise the page by triggering the update code
+		// Initialise the page by triggering the update code. The changes
+		// are batched up so the model only recalculates, and the view
+		// only redraws, once at the end.
 		//
-		view.changeBody(  Body.findBody(   this, pageState.getBodyName()) );
-		view.changeLens(  Lens.findLens(   this, pageState.getLensName()) );
-		view.changeRange( Range.findRange( this, pageState.getRangeName()) );
+		Catalog catalog = CatalogLoader.get( this );
 		
-		// Kick the view drawing code to get the diagram on screen
-		//
-		view.initialiseView( pageState.getFocalLength(),
-		                     pageState.getAperture(),
-		                     pageState.getDistance() );
+		controller.beginUpdate();
+		try {
+			view.changeBody(  catalog.findBody(  pageState.getBodyName()) );
+			view.changeLens(  catalog.findLens(  pageState.getLensName()) );
+			view.changeRange( catalog.findRange( pageState.getRangeName()) );
+		
+			// Kick the view drawing code to get the diagram on screen
+			//
+			view.initialiseView( pageState.getFocalLength(),
+			                     pageState.getAperture(),
+			                     pageState.getDistance() );
+		}
+		finally {
+			controller.commitUpdate();
+		}
 		 	
     }
 
@@ -179,23 +247,13 @@ public class Page extends Activity {
     {    	
     	super.onPause();
 
-    	Integer saveFocalLength = new Integer( view.getFocalLength() );
-    	Integer saveAperture    = new Integer( view.getAperture() );
-    	Integer saveDistance    = new Integer( view.getDistance() );
-    	String  saveBody        = model.getBody().getName();
-    	String  saveLens        = model.getLens().getName();
-    	String  saveRange       = model.getRange().getName();
-    	
-    	// Save UI state changes to the Page's state store object.
-    	// This store will be retrieved by the onResume() when we
-    	// wake up again.
+    	saveState();
+
+    	// Put a summary of the results on the tab, as a reminder of what's
+    	// in it while it's in the background
     	//
-    	pageState.setFocalLength( saveFocalLength );
-    	pageState.setAperture(    saveAperture  );
-    	pageState.setDistance(    saveDistance );
-    	pageState.setBodyName(    saveBody );
-    	pageState.setLensName(    saveLens );
-    	pageState.setRangeName(   saveRange );
+    	if ( getParent() instanceof DepthOfFieldCalc )
+    		((DepthOfFieldCalc)getParent()).getTabManager().setSummary( tabName, view.getSummary() );
     	
     	Log.v("Page.onPause", String.format("Storing Page values Body=\"%s\", Lens=\"%s\", Range=\"%s\", "+
     			                            "focal length=%d, aperture=%d, distance=%d",
@@ -212,6 +270,36 @@ public class Page extends Activity {
     	DepthOfFieldCalc.getApplicationState().setActivePage( null );
     }
     
+    /**
+     * Copies the page's current settings into its state object, and
+     * passes that to the application state to be kept.
+     */
+    protected void saveState()
+    {
+    	if ( model.getBody() == null || model.getLens() == null || model.getRange() == null )
+    		return;
+
+    	Integer saveFocalLength = Integer.valueOf( view.getFocalLength() );
+    	Integer saveAperture    = Integer.valueOf( view.getAperture() );
+    	Integer saveDistance    = Integer.valueOf( view.getDistance() );
+    	String  saveBody        = model.getBody().getName();
+    	String  saveLens        = model.getLens().getName();
+    	String  saveRange       = model.getRange().getName();
+    	
+    	// Save UI state changes to the Page's state store object.
+    	// This store will be retrieved by the onResume() when we
+    	// wake up again.
+    	//
+    	pageState.setFocalLength( saveFocalLength );
+    	pageState.setAperture(    saveAperture  );
+    	pageState.setDistance(    saveDistance );
+    	pageState.setBodyName(    saveBody );
+    	pageState.setLensName(    saveLens );
+    	pageState.setRangeName(   saveRange );
+
+    	DepthOfFieldCalc.getApplicationState().updatePage( tabName, pageState );
+    }
+    
     /**
      * This activity will be the current one in the tabs, so
      * set the tab widget's understanding of the current activity
@@ -221,6 +309,8 @@ public class Page extends Activity {
     public void onDestroy()
     {
     	DepthOfFieldCalc.getApplicationState().setActivePage( null );
+    	if ( model != null )
+    		model.release();
     	super.onDestroy();
     }
 
@@ -0,0 +1,79 @@
+package org.derekfountain.dofc;
+
+import android.net.Uri;
+
+/**
+ * The original, URI, form of a PageState.
+ * <p>
+ * Pages are now passed around and saved in PageStateCodec's binary form.
+ * This is kept so states saved in the old form can still be read, and for
+ * anything which wants a readable version of a page.
+ * <p>
+ * The URI looks like "dofc:body|lens|range?" with the slider values as
+ * query parameters. Names with a '|' or a '?' in them don't survive the
+ * trip, which is one of the reasons it was replaced.
+ */
+public class PageStateUri {
+
+	private PageStateUri()
+	{
+	}
+
+	/**
+	 * Build a URI from the contents of the page state.
+	 *
+	 * @param pageState
+	 * @return A Uri
+	 */
+	public static Uri toUri( PageState pageState )
+	{
+		// Build a Uri which describes the page - body, lens, values, etc.
+		//
+		Uri.Builder uriBuilder = new Uri.Builder();
+		uriBuilder.path("dofc:"+
+	       		        pageState.getBodyName()+"|"+
+	       		        pageState.getLensName()+"|"+
+	       		        pageState.getRangeName()+"?");
+		uriBuilder.appendQueryParameter("focallength", pageState.getFocalLength().toString());
+		uriBuilder.appendQueryParameter("aperture",    pageState.getAperture().toString());
+        uriBuilder.appendQueryParameter("distance",    pageState.getDistance().toString());
+
+        return uriBuilder.build();
+	}
+
+	/**
+	 * Answers a new PageState with values set from the given URI
+	 *
+	 * @param uri A PageState URI, as created by toUri()
+	 * @return
+	 */
+	public static PageState fromUri( Uri uri )
+	{
+		return setFromUri( new PageState(), uri );
+	}
+
+	/**
+	 * Sets the members of the PageState object to the values found
+	 * in the given URI
+	 *
+	 * @param pageState
+	 * @param inputUri  A PageState URI, as created by toUri()
+	 * @return The object, updated
+	 */
+	public static PageState setFromUri( PageState pageState, Uri inputUri )
+	{
+		pageState.setFocalLength( new Integer( Integer.parseInt(inputUri.getQueryParameter("focallength")) ) );
+		pageState.setAperture(    new Integer( Integer.parseInt(inputUri.getQueryParameter("aperture")) ) );
+		pageState.setDistance(    new Integer( Integer.parseInt(inputUri.getQueryParameter("distance")) ) );
+
+    	String uriBody = inputUri.getPath();
+    	uriBody = uriBody.substring(5, uriBody.lastIndexOf('?'));   // dofc: removed from start
+    	String[] tabInfo = uriBody.split("\\|");
+
+    	pageState.setBodyName(  tabInfo[0] );
+    	pageState.setLensName(  tabInfo[1] );
+    	pageState.setRangeName( tabInfo[2] );
+
+		return pageState;
+	}
+}
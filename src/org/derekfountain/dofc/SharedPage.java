@@ -0,0 +1,191 @@
+package org.derekfountain.dofc;
+
+import org.derekfountain.dofc.c.MVCController;
+import org.derekfountain.dofc.m.Catalog;
+import org.derekfountain.dofc.m.CatalogLoader;
+import org.derekfountain.dofc.m.MVCModel;
+import org.derekfountain.dofc.m.ModelListener;
+import org.derekfountain.dofc.v.ApertureSlider;
+import org.derekfountain.dofc.v.MVCView;
+
+import android.app.TabActivity;
+import android.view.View;
+import android.widget.TabHost;
+
+/**
+ * A single page, layout and MVC objects, shared by all the tabs. This is
+ * the alternative to each tab having its own Page activity, used when the
+ * shared_page resource is true.
+ * <p>
+ * Every tab's content is the same view. When a tab is selected the page's
+ * settings are saved to the tab it was showing, and the newly selected
+ * tab's PageState is loaded into the widgets and the model, the same way
+ * a Page does it in onResume(). So a tab which isn't on show is just its
+ * PageState in the application state, rather than an activity with its
+ * own window, layout and MVC objects, and switching tabs doesn't start
+ * or resume anything.
+ */
+public class SharedPage implements TabHost.TabContentFactory, TabHost.OnTabChangeListener {
+
+	protected final TabActivity   mActivity;
+	protected final TabManager    mTabManager;
+
+	protected final View          mContent;
+	protected final MVCModel      mModel;
+	protected final MVCView       mView;
+	protected final MVCController mController;
+
+	/**
+	 * The tab being shown, and its state
+	 */
+	protected String              mTabName   = null;
+	protected PageState           mPageState = null;
+
+	/**
+	 * Makes the page, and has it shown in the manager's tabs when they're
+	 * selected. The tabs should be added with this as their content
+	 * factory.
+	 *
+	 * @param activity   The activity holding the tabs
+	 * @param tabManager The tabs' manager
+	 */
+	public SharedPage( TabActivity activity, TabManager tabManager )
+	{
+		this.mActivity   = activity;
+		this.mTabManager = tabManager;
+
+		mContent = activity.getLayoutInflater().inflate( R.layout.main, activity.getTabHost().getTabContentView(), false );
+
+		// The aperture slider moves a stop at a time
+		//
+		((ApertureSlider)mContent.findViewById(R.id.Aperture)).setStopIndexMode( true );
+
+		// Create the MVC components and tie them all together, as a Page
+		// does
+		//
+		mModel = new MVCModel( null, null, null );
+		mModel.setPrecompute( true );
+
+		mView = new MVCView( activity, mContent );
+
+		mController = new MVCController();
+		mController.setBackground( true );
+
+		mModel.setListener( new ModelListener() {
+			public void modelHasChanged() {
+				mView.modelHasChanged();
+				saveState();
+			}
+		});
+		mView.setModel( mModel );
+
+		mController.setView( mView );
+		mView.setController( mController );
+
+		mController.setModel( mModel );
+
+		tabManager.setOnTabChangedListener( this );
+	}
+
+	public MVCView getView() {
+		return mView;
+	}
+
+	/**
+	 * Answers the content for a tab, which is the same for them all
+	 */
+	@Override
+	public View createTabContent( String tabName )
+	{
+		return mContent;
+	}
+
+	/**
+	 * Called when a tab is selected, to show it
+	 */
+	@Override
+	public void onTabChanged( String tabName )
+	{
+		show( tabName );
+	}
+
+	/**
+	 * Shows the named tab's state in the page. The tab it was showing
+	 * before is left with its latest state and a summary on its label.
+	 *
+	 * @param tabName
+	 */
+	public void show( String tabName )
+	{
+		PageState pageState = DepthOfFieldCalc.getApplicationState().getKnownPages().get( tabName );
+		if ( pageState == null || (pageState == mPageState && tabName.equals(mTabName)) )
+			return;
+
+		pause();
+		mTabName   = tabName;
+		mPageState = pageState;
+
+		mView.setUnits( DepthOfFieldCalc.getApplicationState().getOptions().getUnits() );
+
+		// The changes are batched up so the model only recalculates, and
+		// the view only redraws, once at the end
+		//
+		Catalog catalog = CatalogLoader.get( mActivity );
+
+		mController.beginUpdate();
+		try {
+			mView.changeBody(  catalog.findBody(  pageState.getBodyName()) );
+			mView.changeLens(  catalog.findLens(  pageState.getLensName()) );
+			mView.changeRange( catalog.findRange( pageState.getRangeName()) );
+
+			mView.initialiseView( pageState.getFocalLength(),
+			                      pageState.getAperture(),
+			                      pageState.getDistance() );
+		}
+		finally {
+			mController.commitUpdate();
+		}
+	}
+
+	/**
+	 * Saves the state of the tab being shown, and puts a summary of its
+	 * results on its label. Called as the tab is left, and as the
+	 * activity pauses.
+	 */
+	public void pause()
+	{
+		if ( mTabName == null )
+			return;
+
+		saveState();
+		mTabManager.setSummary( mTabName, mView.getSummary() );
+	}
+
+	/**
+	 * Copies the page's current settings into the shown tab's state object,
+	 * and passes that to the application state to be kept.
+	 */
+	protected void saveState()
+	{
+		if ( mPageState == null || mModel.getBody() == null || mModel.getLens() == null || mModel.getRange() == null )
+			return;
+
+		mPageState.setFocalLength( Integer.valueOf(mView.getFocalLength()) );
+		mPageState.setAperture(    Integer.valueOf(mView.getAperture()) );
+		mPageState.setDistance(    Integer.valueOf(mView.getDistance()) );
+		mPageState.setBodyName(    mModel.getBody().getName() );
+		mPageState.setLensName(    mModel.getLens().getName() );
+		mPageState.setRangeName(   mModel.getRange().getName() );
+
+		DepthOfFieldCalc.getApplicationState().updatePage( mTabName, mPageState );
+	}
+
+	/**
+	 * Lets go of the model's precomputed results. Called as the activity
+	 * goes away.
+	 */
+	public void release()
+	{
+		mModel.release();
+	}
+}
@@ -0,0 +1,220 @@
+package org.derekfountain.dofc;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+/**
+ * Keeps the application's state in a StateJournal in the app's private
+ * files, so the user's tabs survive the process being killed and the app
+ * being restarted, not just the trips through onSaveInstanceState().
+ * <p>
+ * Nothing here touches the disk on the UI thread. The UI thread says
+ * which named values have changed; at most once every FLUSH_INTERVAL it
+ * asks the Source for the current version of each of them and hands them
+ * to a background thread to append to the journal. A slider being dragged
+ * changes its page's value many times a second, but only the latest
+ * version reaches the file.
+ * <p>
+ * There's one store per process, as there's one application state.
+ */
+public class StateStore {
+
+	/**
+	 * Supplies the current value for a name, on the UI thread
+	 */
+	public interface Source {
+
+		/**
+		 * @param name
+		 * @return The value to save, or null if the name has been removed
+		 */
+		public byte[] encode( String name );
+	}
+
+	protected static final String FILE_NAME      = "state.journal";
+
+	/**
+	 * Milliseconds between writes to the journal while things are changing
+	 */
+	protected static final long   FLUSH_INTERVAL = 2000;
+
+	protected static StateStore   mInstance      = null;
+
+	/**
+	 * The journal, and the thread it's used on. The journal is only ever
+	 * touched by tasks on that thread.
+	 */
+	protected final StateJournal    mJournal;
+	protected final ExecutorService mWriter;
+
+	/**
+	 * The journal's contents when it was opened
+	 */
+	protected final Future<LinkedHashMap<String,byte[]>> mContents;
+
+	/**
+	 * The rest is only used on the UI thread. The saved values are the
+	 * journal's contents, once they've been read, kept up to date with
+	 * the changes handed to the writer since.
+	 */
+	protected final Handler                mHandler      = new Handler( Looper.getMainLooper() );
+	protected LinkedHashMap<String,byte[]> mSaved        = null;
+	protected final LinkedHashSet<String>  mChanged      = new LinkedHashSet<String>();
+	protected Source                       mSource       = null;
+	protected long                         mLastFlush    = 0;
+	protected boolean                      mFlushPending = false;
+
+	protected final Runnable mFlush = new Runnable() {
+		public void run() {
+			mFlushPending = false;
+			flush();
+		}
+	};
+
+	/**
+	 * Answers the application's store, starting to read it on a background
+	 * thread if this is the first time it's been asked for.
+	 *
+	 * @param context A context the application's files can be found from
+	 * @return The store
+	 */
+	public static synchronized StateStore get( Context context )
+	{
+		if ( mInstance == null )
+			mInstance = new StateStore( new File(context.getApplicationContext().getFilesDir(), FILE_NAME) );
+
+		return mInstance;
+	}
+
+	protected StateStore( File file )
+	{
+		mJournal  = new StateJournal( file );
+		mWriter   = Executors.newSingleThreadExecutor( new ThreadFactory() {
+			public Thread newThread( Runnable runnable ) {
+				Thread thread = new Thread( runnable, "StateStore" );
+				thread.setDaemon( true );
+				return thread;
+			}
+		});
+		mContents = mWriter.submit( new Callable<LinkedHashMap<String,byte[]>>() {
+			public LinkedHashMap<String,byte[]> call() throws IOException {
+				return mJournal.open();
+			}
+		});
+	}
+
+	/**
+	 * Answers what's in the store: what was there when the application
+	 * started, with every change handed to the background thread since.
+	 * This waits for the read to finish if need be. If the store couldn't
+	 * be read it answers an empty set, and the journal won't be written.
+	 * Call on the UI thread, and don't change what it answers.
+	 *
+	 * @return The values, keyed by name
+	 */
+	public LinkedHashMap<String,byte[]> getContents()
+	{
+		if ( mSaved != null )
+			return mSaved;
+
+		boolean interrupted = false;
+		try {
+			while ( true ) {
+				try {
+					mSaved = mContents.get();
+					return mSaved;
+				}
+				catch ( InterruptedException e ) {
+					interrupted = true;
+				}
+			}
+		}
+		catch ( ExecutionException e ) {
+			Log.w("StateStore", "Unable to read saved state", e.getCause());
+			mSaved = new LinkedHashMap<String,byte[]>();
+			return mSaved;
+		}
+		finally {
+			if ( interrupted )
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	public void setSource( Source source ) {
+		this.mSource = source;
+	}
+
+	/**
+	 * Notes that the named value has changed, and arranges for it to be
+	 * written. Call on the UI thread.
+	 *
+	 * @param name
+	 */
+	public void changed( String name )
+	{
+		mChanged.add( name );
+
+		if ( !mFlushPending ) {
+			mFlushPending = true;
+			mHandler.postAtTime( mFlush, Math.max( SystemClock.uptimeMillis(),
+					                               mLastFlush + FLUSH_INTERVAL ) );
+		}
+	}
+
+	/**
+	 * Hands everything which has changed to the background thread to be
+	 * written now, rather than waiting for the interval to pass. This
+	 * doesn't wait for the write, so it's fine to call from onPause().
+	 * Call on the UI thread.
+	 */
+	public void flush()
+	{
+		if ( mFlushPending ) {
+			mHandler.removeCallbacks( mFlush );
+			mFlushPending = false;
+		}
+		if ( mChanged.isEmpty() || mSource == null )
+			return;
+
+		// Take a copy of each value now, on the UI thread, so the writer
+		// isn't reading the application's objects while they're changing
+		//
+		final LinkedHashMap<String,byte[]> changes = new LinkedHashMap<String,byte[]>();
+		LinkedHashMap<String,byte[]>       saved   = getContents();
+		for ( String name : mChanged ) {
+			byte[] value = mSource.encode( name );
+			changes.put( name, value );
+			if ( value == null )
+				saved.remove( name );
+			else
+				saved.put( name, value );
+		}
+		mChanged.clear();
+		mLastFlush = SystemClock.uptimeMillis();
+
+		mWriter.execute( new Runnable() {
+			public void run() {
+				try {
+					mJournal.write( changes );
+				}
+				catch ( IOException e ) {
+					Log.w("StateStore", "Unable to save state", e);
+				}
+			}
+		});
+	}
+}
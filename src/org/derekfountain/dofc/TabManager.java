@@ -0,0 +1,414 @@
+package org.derekfountain.dofc;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+
+import android.app.TabActivity;
+import android.content.Intent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.Window;
+import android.widget.TabHost;
+import android.widget.TabWidget;
+import android.widget.TextView;
+
+/**
+ * Looks after the tabs in the application's TabHost, so a tab can be added
+ * or removed without disturbing the others.
+ * <p>
+ * TabHost can add a tab on the end, but the only way it offers to remove
+ * one is clearAllTabs(), after which every tab has to be added again. So
+ * a removed tab isn't taken out of the TabHost. Its Page activity is
+ * destroyed, its content is taken away and its label is hidden, leaving a
+ * dead slot. The TabHost still counts the slot, so the other tabs keep
+ * their positions and nothing else needs touching.
+ * <p>
+ * Once there are as many dead slots as live tabs, and at least
+ * MAX_DEAD_TABS, the tabs are compacted: the TabHost is cleared and the
+ * live tabs' specs added back. That's only new labels - the Page
+ * activities are looked up by tab name and carry on as they were. A
+ * compaction costs time in proportion to the live tabs, and there's been
+ * at least that many removals since the last one, so a removal costs a
+ * constant amount of time on average, however many tabs there are.
+ * <p>
+ * A tab's Page activity, with its layout and MVC objects, is only created
+ * when the tab is first selected. Until then the tab is just its label
+ * and its PageState in the application state. Only the MAX_PAGES most
+ * recently selected Pages are kept; older ones are destroyed, and made
+ * again from the application state if their tab is selected. When memory
+ * is short trimPages() gets rid of all but the current one.
+ * <p>
+ * A tab's label can carry a summary of its page's results, set by the
+ * Page as it pauses, so the user can tell tabs apart without opening
+ * them.
+ * <p>
+ * Alternatively a tab's content can come from a TabContentFactory instead
+ * of a Page activity. SharedPage uses that to give every tab the same
+ * view, which it fills in for each tab as it's selected.
+ */
+public class TabManager implements TabHost.OnTabChangeListener {
+
+	/**
+	 * Dead slots allowed to build up before the TabHost is cleared out,
+	 * when there are only a few live tabs. With more, as many dead slots
+	 * as there are live tabs are allowed.
+	 */
+	protected static final int MAX_DEAD_TABS = 8;
+
+	/**
+	 * Page activities kept alive at once
+	 */
+	protected static final int MAX_PAGES     = 4;
+
+	/**
+	 * A tab's slot in the TabHost. The label views are the ones the
+	 * TabWidget made for it, so they can be hidden.
+	 */
+	protected static class Tab {
+		protected final String          mName;
+		protected final TabHost.TabSpec mSpec;
+		protected View                  mIndicator = null;
+		protected View                  mDivider   = null;
+		protected boolean               mDead      = false;
+		protected String                mSummary   = null;
+
+		protected Tab( String name, TabHost.TabSpec spec )
+		{
+			this.mName = name;
+			this.mSpec = spec;
+		}
+	}
+
+	protected final TabActivity         mActivity;
+
+	/**
+	 * Every slot in the TabHost, in order, dead or alive, and the live
+	 * ones by name
+	 */
+	protected final ArrayList<Tab>      mSlots     = new ArrayList<Tab>();
+	protected final HashMap<String,Tab> mTabs      = new HashMap<String,Tab>();
+	protected int                       mDeadCount = 0;
+
+	/**
+	 * Tabs whose Pages have been created, least recently selected first
+	 */
+	protected final ArrayList<Tab>      mPages     = new ArrayList<Tab>();
+
+	/**
+	 * Set while the TabHost is being refilled, when tabs get selected
+	 * along the way which the user hasn't asked for
+	 */
+	protected boolean                   mRegistering = false;
+
+	/**
+	 * Told when the user selects a tab, after the manager has dealt with it
+	 */
+	protected TabHost.OnTabChangeListener mListener  = null;
+
+	/**
+	 * @param activity The activity holding the tabs
+	 */
+	public TabManager( TabActivity activity )
+	{
+		this.mActivity = activity;
+		activity.getTabHost().setOnTabChangedListener( this );
+	}
+
+	/**
+	 * Adds a tab on the end. If there's no current tab this one's selected,
+	 * which makes its Page.
+	 *
+	 * @param tabName Name of the tab, which is also its label
+	 * @param intent  Intent which starts the tab's Page
+	 */
+	public void add( String tabName, Intent intent )
+	{
+		Tab tab = new Tab( tabName, mActivity.getTabHost().newTabSpec(tabName).setIndicator(tabName).setContent(intent) );
+		mTabs.put( tabName, tab );
+		register( tab );
+	}
+
+	/**
+	 * Adds a tab on the end, whose content comes from the given factory
+	 * rather than a Page.
+	 *
+	 * @param tabName Name of the tab, which is also its label
+	 * @param factory Factory which makes the tab's content
+	 */
+	public void add( String tabName, TabHost.TabContentFactory factory )
+	{
+		Tab tab = new Tab( tabName, mActivity.getTabHost().newTabSpec(tabName).setIndicator(tabName).setContent(factory) );
+		mTabs.put( tabName, tab );
+		register( tab );
+	}
+
+	/**
+	 * Removes the named tab and destroys its Page. If it's the current tab
+	 * the one after it is selected, or the one before if it was the last.
+	 *
+	 * @param tabName
+	 */
+	public void remove( String tabName )
+	{
+		Tab tab = mTabs.remove( tabName );
+		if ( tab == null )
+			return;
+		mPages.remove( tab );
+
+		TabHost tabHost = mActivity.getTabHost();
+		int     slot    = mSlots.indexOf( tab );
+
+		if ( tabHost.getCurrentTab() == slot ) {
+			int next = nextLiveSlot( slot, 1 );
+			if ( next < 0 )
+				next = nextLiveSlot( slot, -1 );
+
+			if ( next < 0 ) {
+				// Nothing left to switch to
+				//
+				destroyPage( tab );
+				clear();
+				return;
+			}
+
+			// The old content goes, unless the tabs share their content
+			//
+			View content = tabHost.getCurrentView();
+			tabHost.setCurrentTab( next );
+			if ( content != null && content != tabHost.getCurrentView() )
+				tabHost.getTabContentView().removeView( content );
+		}
+
+		destroyPage( tab );
+
+		// Hide the label. If the tab was first, the next one's divider now
+		// leads the row, so that goes too.
+		//
+		tab.mIndicator.setVisibility( View.GONE );
+		if ( tab.mDivider != null ) {
+			tab.mDivider.setVisibility( View.GONE );
+		}
+		else {
+			int next = nextLiveSlot( slot, 1 );
+			if ( next >= 0 && mSlots.get(next).mDivider != null )
+				mSlots.get(next).mDivider.setVisibility( View.GONE );
+		}
+
+		tab.mDead = true;
+		if ( ++mDeadCount >= Math.max(MAX_DEAD_TABS, mTabs.size()) )
+			compact();
+	}
+
+	/**
+	 * Removes all the tabs, leaving their Pages to the caller
+	 */
+	public void clear()
+	{
+		mActivity.getTabHost().clearAllTabs();
+		mSlots.clear();
+		mTabs.clear();
+		mPages.clear();
+		mDeadCount = 0;
+	}
+
+	/**
+	 * Sets the summary shown on the named tab's label under its name.
+	 *
+	 * @param tabName
+	 * @param summary Summary, or null for just the name
+	 */
+	public void setSummary( String tabName, String summary )
+	{
+		Tab tab = mTabs.get( tabName );
+		if ( tab == null )
+			return;
+
+		tab.mSummary = summary;
+		showLabel( tab );
+	}
+
+	public void setOnTabChangedListener( TabHost.OnTabChangeListener listener ) {
+		this.mListener = listener;
+	}
+
+	/**
+	 * Destroys the least recently selected Pages, leaving the given number
+	 * at most. The current tab's Page is always kept. The tabs stay, and
+	 * their Pages are made again when they're next selected.
+	 *
+	 * @param keep
+	 */
+	public void trimPages( int keep )
+	{
+		String current = mActivity.getTabHost().getCurrentTabTag();
+		for ( int i = 0; i < mPages.size() && mPages.size() > keep; ) {
+			Tab tab = mPages.get(i);
+			if ( tab.mName.equals(current) ) {
+				i++;
+			}
+			else {
+				mPages.remove( i );
+				destroyPage( tab );
+			}
+		}
+	}
+
+	/**
+	 * Called by the TabHost when a tab is selected, which creates its Page
+	 * if it hasn't got one. That makes it the most recently used. Then the
+	 * listener is told.
+	 */
+	@Override
+	public void onTabChanged( String tabName )
+	{
+		Tab tab = mTabs.get( tabName );
+		if ( tab == null || mRegistering )
+			return;
+
+		mPages.remove( tab );
+		mPages.add( tab );
+		if ( mPages.size() > MAX_PAGES )
+			trimPages( MAX_PAGES );
+
+		if ( mListener != null )
+			mListener.onTabChanged( tabName );
+	}
+
+	/**
+	 * Answers true if the named tab has a Page the manager is keeping
+	 * track of
+	 *
+	 * @param tabName
+	 */
+	public boolean hasPage( String tabName )
+	{
+		Tab tab = mTabs.get( tabName );
+		return tab != null && mPages.contains( tab );
+	}
+
+	/**
+	 * Answers the number of live tabs
+	 */
+	public int size()
+	{
+		return mTabs.size();
+	}
+
+	/**
+	 * Clears out the dead slots
+	 */
+	protected void compact()
+	{
+		reregister( liveTabs() );
+	}
+
+	/**
+	 * Clears the TabHost and adds the given tabs back, in order, keeping
+	 * the current tab selected
+	 */
+	protected void reregister( ArrayList<Tab> tabs )
+	{
+		TabHost tabHost = mActivity.getTabHost();
+		String  current = tabHost.getCurrentTabTag();
+
+		// The current tab is always a live one here, so there's no need to
+		// move off it first. (Clearing the tabs while the current one's Page
+		// is destroyed is what used to upset the tab widget.)
+		//
+		tabHost.clearAllTabs();
+		mSlots.clear();
+		mDeadCount = 0;
+
+		// Adding the first tab selects it, which makes its Page if it
+		// didn't have one. If so, that's thrown away again afterwards.
+		//
+		mRegistering = true;
+		int currentSlot = 0;
+		try {
+			for ( Tab tab : tabs ) {
+				if ( tab.mName.equals(current) )
+					currentSlot = mSlots.size();
+				register( tab );
+			}
+			if ( !mSlots.isEmpty() )
+				tabHost.setCurrentTab( currentSlot );
+		}
+		finally {
+			mRegistering = false;
+		}
+
+		if ( currentSlot != 0 && !mPages.contains(mSlots.get(0)) )
+			destroyPage( mSlots.get(0) );
+	}
+
+	/**
+	 * Adds a tab to the end of the TabHost, picking up the label views the
+	 * TabWidget makes for it. On some versions a divider goes in before
+	 * the label, after the first tab.
+	 */
+	protected void register( Tab tab )
+	{
+		TabWidget tabWidget = mActivity.getTabHost().getTabWidget();
+		int       before    = tabWidget.getChildCount();
+
+		mActivity.getTabHost().addTab( tab.mSpec );
+
+		int after = tabWidget.getChildCount();
+		tab.mIndicator = tabWidget.getChildAt( after - 1 );
+		tab.mDivider   = ( after - before > 1 ) ? tabWidget.getChildAt( after - 2 ) : null;
+		mSlots.add( tab );
+
+		if ( tab.mSummary != null )
+			showLabel( tab );
+	}
+
+	/**
+	 * Puts the tab's name and summary into its label
+	 */
+	protected void showLabel( Tab tab )
+	{
+		View title = tab.mIndicator.findViewById( android.R.id.title );
+		if ( title instanceof TextView )
+			((TextView)title).setText( (tab.mSummary == null) ? tab.mName : tab.mName+"\n"+tab.mSummary );
+	}
+
+	/**
+	 * Destroys a tab's Page, and lets go of its views. The TabHost hangs
+	 * on to the outermost view until the Page is made again, but that's
+	 * emptied so the Page's layout can go.
+	 */
+	protected void destroyPage( Tab tab )
+	{
+		Window window = mActivity.getLocalActivityManager().destroyActivity( tab.mName, true );
+		if ( window == null )
+			return;
+
+		View content = window.getDecorView();
+		mActivity.getTabHost().getTabContentView().removeView( content );
+		if ( content instanceof ViewGroup )
+			((ViewGroup)content).removeAllViews();
+	}
+
+	/**
+	 * Answers the nearest live slot from the given one, in the given
+	 * direction, or -1 if there isn't one
+	 */
+	protected int nextLiveSlot( int slot, int direction )
+	{
+		for ( int i = slot + direction; i >= 0 && i < mSlots.size(); i += direction ) {
+			if ( !mSlots.get(i).mDead )
+				return i;
+		}
+		return -1;
+	}
+
+	protected ArrayList<Tab> liveTabs()
+	{
+		ArrayList<Tab> live = new ArrayList<Tab>( mTabs.size() );
+		for ( Tab tab : mSlots ) {
+			if ( !tab.mDead )
+				live.add( tab );
+		}
+		return live;
+	}
+}
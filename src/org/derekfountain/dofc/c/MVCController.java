@@ -1,20 +1,141 @@
 package org.derekfountain.dofc.c;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
 import org.derekfountain.dofc.m.Body;
+import org.derekfountain.dofc.m.DofResult;
 import org.derekfountain.dofc.m.Lens;
 import org.derekfountain.dofc.m.MVCModel;
 import org.derekfountain.dofc.m.Range;
 import org.derekfountain.dofc.v.MVCView;
 
+import android.os.Handler;
+import android.os.Looper;
+
 /**
  * Controller part of the MVC pattern.
- * 
+ * <p>
+ * By default user input is passed straight to the model on the UI
+ * thread. In background mode the model's sums are done on a worker
+ * thread instead, and the result is posted back to the UI thread.
+ * Inputs go to the worker through a mailbox which only holds the most
+ * recent one, so if the user moves a slider faster than the worker can
+ * keep up the inputs in between are simply dropped.
+ * <p>
+ * Nothing is allocated per input. Each controller has two Input objects,
+ * each with its own result set, which are passed back and forth between
+ * the UI thread and the worker, and the same task is posted back to the
+ * UI thread every time. The worker only ever has one of them, so the UI
+ * thread always has the other to write the next input into.
  */
 public class MVCController {
 
+	/**
+	 * The single worker thread shared by all the controllers, and the
+	 * handler used to post results back to the UI thread
+	 */
+	protected static ExecutorService mWorker    = null;
+	protected static final Handler   mUiHandler = new Handler( Looper.getMainLooper() );
+	
 	protected MVCView mView = null;
 	
 	protected MVCModel mModel = null;
+	
+	/**
+	 * True if the model's sums are done on the worker thread
+	 */
+	protected boolean mBackground = false;
+	
+	/**
+	 * Where the two inputs are. Each is in exactly one of these at any
+	 * time, or is held by the worker while it does the sums. The mailbox
+	 * has the latest input waiting for the worker, the outbox has the
+	 * latest one the worker has finished with, and the spare and the
+	 * reserve are free for the UI thread to use. The worker can put an
+	 * input back in the spare, but the reserve is the UI thread's alone.
+	 * Each is null if there's nothing in it.
+	 */
+	protected final AtomicReference<Input> mMailbox = new AtomicReference<Input>();
+	protected final AtomicReference<Input> mOutbox  = new AtomicReference<Input>();
+	protected final AtomicReference<Input> mSpare   = new AtomicReference<Input>( new Input() );
+	protected Input                        mReserve = new Input();
+	
+	/**
+	 * True while the compute task is waiting to be run by the worker. The
+	 * task clears this before it looks in the mailbox, so an input put in
+	 * the mailbox after that gets a run of its own.
+	 */
+	protected final AtomicBoolean          mQueued  = new AtomicBoolean();
+	
+	/**
+	 * The sequence number of the latest input sent to the worker, or -1
+	 * if there isn't one. Only the result for this input is applied;
+	 * anything older has been overtaken. UI thread only.
+	 */
+	protected long  mLatestSequence = -1;
+	protected long  mNextSequence   = 0;
+	
+	/**
+	 * One set of user input, along with the body, lens and range it
+	 * applies to, and the result the worker works out for it. Whichever
+	 * thread takes one out of the mailbox, outbox, spare or reserve has it to
+	 * itself until it puts it back in one of them.
+	 */
+	protected static class Input {
+		protected long            mSequence;
+		protected Body            mBody;
+		protected Lens            mLens;
+		protected Range           mRange;
+		protected int             mFocalLength;
+		protected int             mAperture;
+		protected double          mSubjectDistance;
+		protected final DofResult mResult = new DofResult();
+	}
+	
+	/**
+	 * Worker task. This takes whatever's in the mailbox, if anything, works
+	 * out the result and passes it back to the UI thread through the
+	 * outbox.
+	 */
+	protected final Runnable mComputeTask = new Runnable() {
+		public void run() {
+			mQueued.set( false );
+			Input input = mMailbox.getAndSet( null );
+			if ( input == null )
+				return;
+			
+			mModel.computeResult( input.mBody, input.mLens, input.mRange,
+					              input.mFocalLength, input.mAperture, input.mSubjectDistance,
+					              input.mResult );
+			
+			// If the outbox was empty the UI thread needs telling. If it
+			// wasn't, the result there hasn't been applied yet, and this one
+			// overtakes it; it's already been told, and the input which was
+			// there is now free.
+			//
+			Input overtaken = mOutbox.getAndSet( input );
+			if ( overtaken == null )
+				mUiHandler.post( mApplyTask );
+			else
+				mSpare.set( overtaken );
+		}
+	};
+	
+	/**
+	 * UI thread task, posted by the worker. This applies whatever result
+	 * is in the outbox, if anything.
+	 */
+	protected final Runnable mApplyTask = new Runnable() {
+		public void run() {
+			Input input = mOutbox.getAndSet( null );
+			if ( input != null )
+				applyResult( input );
+		}
+	};
 
 	public MVCView getView() {
 		return mView;
@@ -32,6 +153,20 @@ public class MVCController {
 		this.mModel = model;
 	}
 	
+	public boolean isBackground() {
+		return mBackground;
+	}
+	
+	/**
+	 * Switches background mode on or off. In background mode the model's
+	 * sums for user input are done on a worker thread.
+	 * 
+	 * @param background
+	 */
+	public void setBackground(boolean background) {
+		this.mBackground = background;
+	}
+	
 	/**
 	 * Responds to user gestures from the view.
 	 * <p>
@@ -45,7 +180,113 @@ public class MVCController {
 		// model code needs to know about.
 		//
 		
-		mModel.stateChange( focalLength, aperture, subjectDistance );
+		if ( !mBackground || mModel.isUpdating() || mModel.getBody() == null || mModel.getLens() == null || mModel.getRange() == null ) {
+			mLatestSequence = -1;
+			mModel.stateChange( focalLength, aperture, subjectDistance );
+			return;
+		}
+		
+		// Take back the input the worker hasn't got round to yet, if there
+		// is one, as this one replaces it. Otherwise the worker has at most
+		// one of the inputs, and the other is either free, or holds a
+		// result this input overtakes.
+		//
+		Input input = mMailbox.getAndSet( null );
+		if ( input == null ) {
+			input = mReserve;
+			mReserve = null;
+			if ( input == null )
+				input = mSpare.getAndSet( null );
+			if ( input == null )
+				input = mOutbox.getAndSet( null );
+		}
+		
+		input.mSequence        = mNextSequence++;
+		input.mBody            = mModel.getBody();
+		input.mLens            = mModel.getLens();
+		input.mRange           = mModel.getRange();
+		input.mFocalLength     = focalLength;
+		input.mAperture        = aperture;
+		input.mSubjectDistance = subjectDistance;
+		mLatestSequence = input.mSequence;
+		
+		// If the compute task is still waiting to run it'll pick this up.
+		// Otherwise the worker needs waking up.
+		//
+		mMailbox.set( input );
+		if ( mQueued.compareAndSet(false, true) )
+			getWorker().execute( mComputeTask );
+	}
+	
+	/**
+	 * Starts a batch of changes. Body, lens, range and input changes made
+	 * before the matching commitUpdate() are collected up, and the model
+	 * recalculates and redraws just once, at the commit.
+	 */
+	public void beginUpdate()
+	{
+		mModel.beginUpdate();
+	}
+	
+	/**
+	 * Ends a batch of changes started by beginUpdate().
+	 */
+	public void commitUpdate()
+	{
+		mModel.commitUpdate();
+	}
+	
+	/**
+	 * Applies a result worked out by the worker, on the UI thread, unless
+	 * it's been overtaken by later input.
+	 * <p>
+	 * If the body, lens or range changed while the worker was busy the
+	 * result is for the old ones. The input is still the user's latest
+	 * though, so it's sent round again.
+	 * 
+	 * The input is made spare again, whatever happens to its result.
+	 * 
+	 * @param input
+	 */
+	protected void applyResult( Input input )
+	{
+		boolean latest  = ( input.mSequence == mLatestSequence );
+		boolean applied = latest && mModel.applyResult( input.mBody, input.mLens, input.mRange,
+				                                        input.mFocalLength, input.mAperture, input.mSubjectDistance,
+				                                        input.mResult );
+		
+		int    focalLength     = input.mFocalLength;
+		int    aperture        = input.mAperture;
+		double subjectDistance = input.mSubjectDistance;
+		
+		input.mBody  = null;
+		input.mLens  = null;
+		input.mRange = null;
+		if ( mReserve == null )
+			mReserve = input;
+		else
+			mSpare.set( input );
+		
+		if ( latest && !applied )
+			userMadeInput( focalLength, aperture, subjectDistance );
+	}
+	
+	/**
+	 * Answers the worker thread shared by all the controllers, starting
+	 * it if need be.
+	 */
+	protected static synchronized ExecutorService getWorker()
+	{
+		if ( mWorker == null ) {
+			mWorker = Executors.newSingleThreadExecutor( new ThreadFactory() {
+				public Thread newThread( Runnable runnable ) {
+					Thread thread = new Thread( runnable, "DofCompute" );
+					thread.setDaemon( true );
+					return thread;
+				}
+			});
+		}
+		return mWorker;
 	}
 	
 	/**
@@ -0,0 +1,214 @@
+package org.derekfountain.dofc.m;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+
+/**
+ * Reads the catalogue from the application's resources, and holds the one
+ * in use.
+ * <p>
+ * The application starts reading the catalogue on a background thread as
+ * soon as it starts up, so the UI can get going in the meantime. Anything
+ * which needs the catalogue before it's ready waits for it.
+ * <p>
+ * The decoding is done by Catalog, which has no Android dependencies. This
+ * is the part which needs a Context.
+ */
+public class CatalogLoader {
+
+	/**
+	 * The catalogue currently in use. This is replaced wholesale when the
+	 * catalogue is reloaded, never changed in place, so a reader on any
+	 * thread which picks it up sees a consistent set of entries.
+	 */
+	protected static volatile Catalog    mCurrent         = null;
+
+	/**
+	 * Background task reading the catalogue from the application's resources
+	 */
+	protected static Loader              mLoader          = null;
+
+	/**
+	 * Callbacks waiting for the catalogue to be read, and the handler used
+	 * to run them on the UI thread
+	 */
+	protected static ArrayList<Runnable> mLoadedCallbacks = new ArrayList<Runnable>();
+	protected static final Handler       mUiHandler       = new Handler( Looper.getMainLooper() );
+
+	private CatalogLoader()
+	{
+	}
+
+	/**
+	 * Starts reading the catalogue held in the application's resources on
+	 * a background thread, if that hasn't already been started.
+	 * <p>
+	 * This should be called as early as possible. Everything which needs
+	 * the catalogue goes through get(), which waits for this to finish.
+	 *
+	 * @param context A context the application resources can found from
+	 * @return A future which yields the catalogue
+	 */
+	public static synchronized Future<Catalog> startLoading( Context context )
+	{
+		if ( mLoader == null )
+			startLoader( context );
+
+		return mLoader;
+	}
+
+	/**
+	 * Starts reading the catalogue again, on a background thread. When it's
+	 * been read it replaces the current one. Until then get() carries on
+	 * answering the current one.
+	 *
+	 * @param context A context the application resources can found from
+	 * @return A future which yields the new catalogue
+	 */
+	public static synchronized Future<Catalog> reload( Context context )
+	{
+		startLoader( context );
+
+		return mLoader;
+	}
+
+	/**
+	 * Replaces the catalogue in use with the one given. Anything which has
+	 * already picked up the old one carries on using it.
+	 *
+	 * @param catalog
+	 */
+	public static void install( Catalog catalog )
+	{
+		mCurrent = catalog;
+	}
+
+	protected static void startLoader( Context context )
+	{
+		mLoader = new Loader( context.getApplicationContext() );
+		
+		Thread thread = new Thread( mLoader, "CatalogLoader" );
+		thread.start();
+	}
+
+	/**
+	 * Arranges for the given callback to be run on the UI thread once the
+	 * catalogue has been read. If it's already been read the callback is
+	 * posted straight away.
+	 *
+	 * @param context  A context the application resources can found from
+	 * @param callback
+	 */
+	public static synchronized void whenLoaded( Context context, Runnable callback )
+	{
+		startLoading( context );
+
+		if ( mCurrent != null || mLoader.isDone() )
+			mUiHandler.post( callback );
+		else
+			mLoadedCallbacks.add( callback );
+	}
+
+	/**
+	 * Answers the catalogue in use. If the first load of the catalogue
+	 * hasn't finished this waits for it, and if it hasn't been started this
+	 * starts it.
+	 *
+	 * @param context A context the application resources can found from
+	 * @return The catalogue
+	 * @throws IllegalStateException if the catalogue can't be read
+	 */
+	public static Catalog get( Context context )
+	{
+		Catalog current = mCurrent;
+		if ( current != null )
+			return current;
+		
+		Future<Catalog> loader      = startLoading( context );
+		boolean         interrupted = false;
+		
+		try {
+			while ( true ) {
+				try {
+					return loader.get();
+				}
+				catch ( InterruptedException e ) {
+					interrupted = true;
+				}
+			}
+		}
+		catch ( ExecutionException e ) {
+			throw new IllegalStateException("Unable to read the catalogue", e.getCause());
+		}
+		finally {
+			if ( interrupted )
+				Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Reads the catalogue held in the application's resources.
+	 *
+	 * @param context A context the application resources can found from
+	 * @return The catalogue
+	 * @throws IOException if the catalogue can't be read
+	 */
+	protected static Catalog load( Context context ) throws IOException
+	{
+		InputStream in = context.getResources().openRawResource(org.derekfountain.dofc.R.raw.catalog);
+		try {
+			return Catalog.read( in );
+		}
+		finally {
+			try {
+				in.close();
+			}
+			catch ( IOException e ) {}
+		}
+	}
+
+	/**
+	 * The background task which reads the catalogue. When it's finished it
+	 * installs the catalogue it read, then posts the waiting callbacks to
+	 * the UI thread. If the read failed the current catalogue is left alone,
+	 * and so it is if another load has been started since this one, as
+	 * that one's catalogue is the newer.
+	 */
+	protected static class Loader extends FutureTask<Catalog> {
+		
+		public Loader( final Context context ) {
+			super( new Callable<Catalog>() {
+				public Catalog call() throws IOException {
+					return load( context );
+				}
+			});
+		}
+
+		@Override
+		protected void set( Catalog catalog ) {
+			synchronized ( CatalogLoader.class ) {
+				if ( mLoader == this )
+					install( catalog );
+			}
+			super.set( catalog );
+		}
+
+		@Override
+		protected void done() {
+			synchronized ( CatalogLoader.class ) {
+				for ( Runnable callback : mLoadedCallbacks )
+					mUiHandler.post( callback );
+				mLoadedCallbacks.clear();
+			}
+		}
+	}
+}
@@ -1,8 +1,6 @@
 package org.derekfountain.dofc.v;
 
 import java.util.Collection;
-import java.util.SortedSet;
-import java.util.TreeSet;
 
 import org.derekfountain.dofc.m.StopRange;
 
@@ -13,74 +11,33 @@ import android.util.AttributeSet;
  * Widget to present a slider which jumps between a set of
  * pre-set values, in this case them being the standard
  * aperture settings.
+ * <p>
+ * By default the seekbar's progress is the aperture value itself, less
+ * the minimum, and a position between two stops is snapped to the
+ * nearest one. In stop index mode the progress is the position of the
+ * stop in the list of valid values instead, so every position is a
+ * valid stop and there's no snapping to do while the user drags.
  */
 public class ApertureSlider extends Slider {
 
 	/**
 	 * Array of aperture values the slider will currently move between.
+	 * The tables of supported values live in StopRange.
 	 */
 	protected int[] validValues = null;
-		
-	// Tables of supported values - 400 is f/4.0, etc. There needs to be one entry in
-	// the table of exact values in the model code for each entry here.
-	//
-	protected static final int[] fullStopValues    = new int[] { 100,
-													  		     140,
-															     200,
-															     280,
-															     400,
-															     560,
-															     800,
-															     1100,
-															     1600,
-															     2200,
-															     3200,
-															     4500,
-															     6400 };
 	
-	protected static final int[] quarterStopValues = new int[] { 260,
-																 340,
-																 370,
-																 440,
-																 520,
-																 620,
-																 730,
-																 870,
-																 1200,
-																 1500,
-																 1700,
-																 2100 };
-
-	protected static final int[] thirdStopValues   = new int[] { 110,
-		                                                         120,
-		                                                         160,
-		                                                         180,
-		                                                         220,
-		                                                         250,
-		                                                         320,
-		                                                         350,
-		                                                         450,
-		                                                         500,
-		                                                         630,
-		                                                         710,
-		                                                         900,
-		                                                         1000,
-		                                                         1300,
-		                                                         1400,
-		                                                         1800,
-		                                                         2000,
-		                                                         2500,
-		                                                         2800 };
+	/**
+	 * True if the seekbar's progress is an index into validValues
+	 */
+	protected boolean stopIndexMode = false;
 	
-	protected static final int[] halfStopValues    = new int[] { 170,
-		                                                         240,
-		                                                         330,
-		                                                         480,
-		                                                         670,
-		                                                         950,
-		                                                         1900 };
+	/**
+	 * In stop index mode, the range of validValues the slider covers,
+	 * inclusive
+	 */
+	protected int firstStop = 0;
+	protected int lastStop  = 0;
 		
-	
 	/**
 	 * Constructor, by default sets the valid values to the range
 	 * of full stops.
@@ -90,7 +47,7 @@ public class ApertureSlider extends Slider {
 	 */
 	public ApertureSlider(Context context, AttributeSet attrs) {
 		super(context, attrs);
-		validValues = fullStopValues;
+		validValues = StopRange.FULL.getValues();
 		setProgress(0);
 	}
 	
@@ -130,6 +87,12 @@ public class ApertureSlider extends Slider {
 	@Override
 	public void setSliderValue( int newValue )
 	{
+		if ( stopIndexMode ) {
+			int stop = findClosestValidIndex( newValue );
+			setSeekBarProgress( Math.min( Math.max(stop, firstStop), lastStop ) - firstStop );
+			return;
+		}
+		
 		int progress = findClosestValidValue( newValue );
 		super.setSliderValue( progress );
 	}
@@ -141,6 +104,9 @@ public class ApertureSlider extends Slider {
 	@Override
 	public int getSliderValue()
 	{
+		if ( stopIndexMode )
+			return validValues[ Math.min( firstStop + getProgress(), lastStop ) ];
+		
 		int sliderProgress = super.getSliderValue();
 		return findClosestValidValue( sliderProgress );
 	}
@@ -154,26 +120,67 @@ public class ApertureSlider extends Slider {
 	 */
 	protected int findClosestValidValue( int input )
 	{
-		if ( input <= validValues[0] )
-			return validValues[0];
+		return validValues[ findClosestValidIndex(input) ];
+	}
+	
+	/**
+	 * Answers the position in validValues of the closest value supported
+	 * by the aperture widget to the value given. Where the value given is
+	 * exactly half way between two stops the higher one wins.
+	 * 
+	 * @param input
+	 * @return
+	 */
+	protected int findClosestValidIndex( int input )
+	{
+		return StopRange.closestIndex( validValues, input );
+	}
+	
+	/**
+	 * Switches stop index mode on or off.
+	 * 
+	 * @param stopIndexMode
+	 */
+	public void setStopIndexMode( boolean stopIndexMode )
+	{
+		this.stopIndexMode = stopIndexMode;
+		updateStopIndexRange();
+	}
+	
+	public boolean isStopIndexMode()
+	{
+		return stopIndexMode;
+	}
+	
+	@Override
+	public void setRangeMinMax( Integer rangeMin, Integer rangeMax )
+	{
+		super.setRangeMinMax( rangeMin, rangeMax );
+		updateStopIndexRange();
+	}
+	
+	/**
+	 * In stop index mode, works out which of the valid values lie within
+	 * the slider's range, and sizes the seekbar to match. The rest of the
+	 * time this does nothing.
+	 */
+	protected void updateStopIndexRange()
+	{
+		if ( !stopIndexMode )
+			return;
 		
-		if ( input >= validValues[validValues.length-1] )
-			return validValues[validValues.length-1];
+		firstStop = findClosestValidIndex( rangeMin );
+		if ( validValues[firstStop] < rangeMin && firstStop < validValues.length-1 )
+			firstStop++;
 		
-		for ( int i = 0; i < validValues.length-1; i++ ) {
-			
-			if ( input >= validValues[i] && input <= validValues[i+1]) {
-				if ( (input-validValues[i]) < (validValues[i+1]-input) )
-					return validValues[i];
-				else
-					return validValues[i+1];
-			}
-			
-		}
+		lastStop = findClosestValidIndex( rangeMax );
+		if ( validValues[lastStop] > rangeMax && lastStop > firstStop )
+			lastStop--;
 		
-		// Keep compiler quiet
-		//
-		return validValues[0];
+		if ( lastStop < firstStop )
+			lastStop = firstStop;
+		
+		super.setMax( lastStop - firstStop );
 	}
 	
 	/**
@@ -187,47 +194,11 @@ public class ApertureSlider extends Slider {
 	 */
 	protected void setStops( Collection<StopRange> stopRanges )
 	{
-		// I have to copy the values for one for more of the static
-		// integer arrays into the output integer array, keeping the
-		// final array in order. There are several ways to do this,
-		// but no one looked any simplier than the others. So I opted
-		// to build a sorted set of all the values I require, then
-		// copy it out out into a new array. I have this nagging
-		// feeling I've missed the obvious and efficient way of
-		// doing this. :o}
-		//
-		SortedSet<Integer> validStops = new TreeSet<Integer>();
-		
-		for ( StopRange stopRange : stopRanges ) {
-			
-			int[] arrayToAdd = null;
-			switch ( stopRange ) {
-				case FULL:
-					arrayToAdd = fullStopValues;
-					break;
-				case QUARTER:
-					arrayToAdd = quarterStopValues;
-					break;
-				case THIRD:
-					arrayToAdd = thirdStopValues;
-					break;
-				case HALF:
-					arrayToAdd = halfStopValues;
-					break;
-			}
-
-			// Copy all the values in the array specified as required
-			// into the output set
-			//
-			for( int i=0; i<arrayToAdd.length; i++)
-				validStops.add(arrayToAdd[i]);
-		}
-
-		// Now copy the contents of the output set into the final array
+		// The merged arrays for every combination of stop ranges are
+		// built once, up front, so there's nothing to do here but pick
+		// up the right one. The array is shared, so it mustn't be changed.
 		//
-		int i = 0;
-		validValues = new int[validStops.size()];
-		for ( Integer stop : validStops )
-			validValues[i++] = stop.intValue();
+		validValues = StopRange.valuesOf( stopRanges );
+		updateStopIndexRange();
 	}
 }
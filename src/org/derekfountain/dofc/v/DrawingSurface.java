@@ -1,6 +1,7 @@
 package org.derekfountain.dofc.v;
 
 import org.derekfountain.dofc.R;
+import org.derekfountain.dofc.m.DofResult;
 import org.derekfountain.dofc.v.MVCView.Units;
 
 import android.content.Context;
@@ -40,22 +41,82 @@ public class DrawingSurface extends View {
 	protected final int   ARROW_SPACING;        // Horizontal gap between an arrow and the thing it's pointing at, in DIPs
 	protected final int   WIDTH_ARROW_HEAD;     // Width of an arrow head, in DIPs
 	protected final int   HEIGHT_ARROW_HEAD;    // Height of an arrow head, in DIPs
+	
+	// Characters the value strings are made of, measured to find the height of a row
+	//
+	protected static final String ROW_TEXT_SAMPLE = "0123456789.,mft\u221e";
 
-   	// Values to show on the diagram. null means infinity.
+   	// Values to show on the diagram. Until these are valid everything
+	// is shown as infinity.
 	//
-	protected Double nearLimit          = null;
-    protected Double farLimit           = null;
-    protected Double dof                = null;
-    protected Double inFront            = null;
-    protected Double behind             = null;
-    protected Double hyperfocalDistance = null;
-    protected Double hyperfocalMin      = null;
+	protected final DofResult values = new DofResult();
     
     // Unit of measurement to display in. This is only used here
     // to display the correct unit in the displayed output strings
     //
     protected Units  units         = Units.METRIC;
     
+    // The strings shown on the diagram. These are only rebuilt when the
+    // values change, not every time the diagram is drawn, and they're
+    // rebuilt in place.
+    //
+    protected final String infinityStr;
+    protected final String metresAbbreviation;
+    protected final String feetAbbreviation;
+    protected final FixedPointFormatter nearLimitStr          = new FixedPointFormatter(2);
+    protected final FixedPointFormatter dofStr                = new FixedPointFormatter(2);
+    protected final FixedPointFormatter farLimitStr           = new FixedPointFormatter(2);
+    protected final FixedPointFormatter inFrontStr            = new FixedPointFormatter(2);
+    protected final FixedPointFormatter behindStr             = new FixedPointFormatter(2);
+    protected final FixedPointFormatter hyperfocalDistanceStr = new FixedPointFormatter(2);
+    protected final FixedPointFormatter hyperfocalMinStr      = new FixedPointFormatter(2);
+    
+    // Drawing tools. These are all created once, in the constructor, so
+    // drawing the diagram doesn't allocate anything. Dragging a slider
+    // redraws the diagram for every step.
+    //
+    protected final Paint  brightPaint;
+    protected final Paint  dimPaint;
+    protected final Paint  shaderPaint;
+    protected final Paint  framePaint;
+    protected final Bitmap cameraBitmap;
+    protected final Path   fovPath        = new Path();
+    protected final Path   arrowHeadPath  = new Path();
+    protected final RectF  subjectRect    = new RectF();
+    protected final Rect   textRect       = new Rect();
+    
+    // Layout of the diagram. This only depends on the size of the view,
+    // so it's worked out in onSizeChanged().
+    //
+    protected int layoutWidth     = -1;
+    protected int fovLeftSide;
+    protected int fovTop;
+    protected int fovBottom;
+    protected int fovRightSide;
+    protected int fovTopLeft;
+    protected int fovBottomLeft;
+    protected int fovTopRight;
+    protected int fovBottomRight;
+    protected int middleX;
+    protected int middleY;
+    protected int fovOneThird;
+    protected int fovTwoThirds;
+    protected int hyperfocalY;
+    protected int cameraY;
+    protected int infinityTextX;
+    protected int infinityTextY;
+    protected int topRowY;
+    protected int middleRowY;
+    protected int hyperfocalRowY;
+    protected int rowHalfHeight;
+    
+    // The parts of the diagram which don't depend on the values - the
+    // camera, the field of view, the subject, the guide lines - drawn
+    // once into an offscreen bitmap. This is thrown away when the layout
+    // changes and redrawn the next time the diagram is drawn.
+    //
+    protected Bitmap staticLayer = null;
+    
 	public DrawingSurface( Context context, AttributeSet attrSet )
 	{
 		super(context, attrSet);
@@ -73,6 +134,42 @@ public class DrawingSurface extends View {
 		ARROW_SPACING     = res.getInteger(R.integer.arrow_spacing);
 		WIDTH_ARROW_HEAD  = res.getInteger(R.integer.width_arrow_head);
 		HEIGHT_ARROW_HEAD = res.getInteger(R.integer.height_arrow_head);
+		
+    	// Bump up the size of the displayed numbers to make them
+    	// a bit more readable
+    	//
+    	float fontScale = res.getDisplayMetrics().density;
+    	
+        brightPaint = new Paint();
+        brightPaint.setAntiAlias(true);
+        brightPaint.setColor(0xffffffff); // Full alpha, white
+        brightPaint.setTextSize( brightPaint.getTextSize() * fontScale );
+
+        dimPaint = new Paint();
+        dimPaint.setAntiAlias(true);
+        dimPaint.setColor(0xff555555);    // Full alpha, grey-ish
+        dimPaint.setTextSize( brightPaint.getTextSize() * fontScale );
+        
+        // The gradient depends on the width of the view, so it's set
+        // when the view is sized
+        //
+        shaderPaint = new Paint();
+        shaderPaint.setAntiAlias(true);
+        shaderPaint.setStyle(Paint.Style.FILL);
+        
+        // Heavier white lines to frame field of view.
+        //
+        framePaint = new Paint();
+        framePaint.setAntiAlias(true);
+        framePaint.setColor(0xffffffff);
+        framePaint.setStrokeWidth(1.5f);
+        
+        cameraBitmap = BitmapFactory.decodeResource(res, R.drawable.cam_side_on);
+        
+        infinityStr        = context.getString(R.string.infinity);
+        metresAbbreviation = res.getString(R.string.metres_abb);
+        feetAbbreviation   = res.getString(R.string.feet_abb);
+        updateStrings();
 	}
 	
 	/**
@@ -84,32 +181,97 @@ public class DrawingSurface extends View {
 	 * "m" or "ft" following. This display code gives no meaning
 	 * to what the value actually means - that's done in the
 	 * view.
+	 * <p>
+	 * The values are copied, so the caller is free to reuse the
+	 * result object it passes in.
 	 * 
-	 * @param nearLimit
-	 * @param farLimit
-	 * @param total
-	 * @param frontDistance
-	 * @param behindDistance
-	 * @param hyperfocalDistance
+	 * @param result
+	 * @param units
 	 */
-	protected void setValues( Double nearLimit, Double farLimit,
-			                  Double total, Double frontDistance, Double behindDistance,
-			                  Double hyperfocalDistance,
-			                  Units units )
+	protected void setValues( DofResult result, Units units )
 	{
-		this.nearLimit          = nearLimit;
-		this.farLimit           = farLimit;
-		this.dof                = total;
-		this.inFront            = frontDistance;
-		this.behind             = behindDistance;
-		this.hyperfocalDistance = hyperfocalDistance;
-		
-		if ( this.hyperfocalDistance != null )
-			hyperfocalMin  = hyperfocalDistance/2;
-		else
-			hyperfocalMin  = null;
-		
+		this.values.copyFrom( result );
 		this.units = units;
+		updateStrings();
+	}
+	
+	/**
+	 * Rebuilds the strings shown on the diagram from the current values.
+	 * They're all infinity until the model supplies a real value.
+	 * <p>
+	 * Only the rows of the diagram with a string that's changed are
+	 * invalidated. A distance-only change, for instance, leaves the
+	 * hyperfocal distance row alone.
+	 */
+	protected void updateStrings()
+	{
+		boolean topRowChanged        = false;
+		boolean middleRowChanged     = false;
+		boolean hyperfocalRowChanged = false;
+		
+        if ( values.isValid() ) {
+        	String unitsAbbreviation = getUnitsAbbreviation();
+        	
+        	nearLimitStr.setSuffix( unitsAbbreviation );
+        	dofStr.setSuffix( unitsAbbreviation );
+        	farLimitStr.setSuffix( unitsAbbreviation );
+        	inFrontStr.setSuffix( unitsAbbreviation );
+        	behindStr.setSuffix( unitsAbbreviation );
+        	hyperfocalDistanceStr.setSuffix( unitsAbbreviation );
+        	hyperfocalMinStr.setSuffix( unitsAbbreviation );
+        	
+        	topRowChanged        |= nearLimitStr.update( values.getNearLimit() );
+        	middleRowChanged     |= inFrontStr.update( values.getFrontDistance() );
+        	hyperfocalRowChanged |= hyperfocalDistanceStr.update( values.getHyperfocalDistance() );
+        	hyperfocalRowChanged |= hyperfocalMinStr.update( values.getHyperfocalDistance()/2 );
+
+        	if ( !values.isInfinite() ) {
+        		topRowChanged    |= dofStr.update( values.getTotal() );
+        		topRowChanged    |= farLimitStr.update( values.getFarLimit() );
+        		middleRowChanged |= behindStr.update( values.getBehindDistance() );
+        	}
+        	else {
+        		topRowChanged    |= dofStr.updateText( infinityStr );
+        		topRowChanged    |= farLimitStr.updateText( infinityStr );
+        		middleRowChanged |= behindStr.updateText( infinityStr );
+        	}
+        }
+        else {
+        	topRowChanged        |= nearLimitStr.updateText( infinityStr );
+        	topRowChanged        |= dofStr.updateText( infinityStr );
+        	topRowChanged        |= farLimitStr.updateText( infinityStr );
+        	middleRowChanged     |= inFrontStr.updateText( infinityStr );
+        	middleRowChanged     |= behindStr.updateText( infinityStr );
+        	hyperfocalRowChanged |= hyperfocalDistanceStr.updateText( infinityStr );
+        	hyperfocalRowChanged |= hyperfocalMinStr.updateText( infinityStr );
+        }
+        
+        // Until the view has been laid out there's no knowing where the
+        // rows are, so it all has to be redrawn
+        //
+        if ( layoutWidth < 0 ) {
+        	invalidate();
+        	return;
+        }
+        
+        if ( topRowChanged )
+        	invalidateRow( topRowY );
+        if ( middleRowChanged )
+        	invalidateRow( middleRowY );
+        if ( hyperfocalRowChanged )
+        	invalidateRow( hyperfocalRowY );
+	}
+	
+	/**
+	 * Invalidates the strip of the view holding a row of values, centred
+	 * on the given y coordinate. The strip goes right across the view in
+	 * case a value is too wide for its slot.
+	 * 
+	 * @param centreY
+	 */
+	protected void invalidateRow( int centreY )
+	{
+		invalidate( 0, centreY-rowHalfHeight, layoutWidth, centreY+rowHalfHeight+1 );
 	}
 	
 	/**
@@ -122,9 +284,9 @@ public class DrawingSurface extends View {
 	protected String getUnitsAbbreviation()
 	{
 		if ( units == Units.METRIC )
-			return getContext().getResources().getString(R.string.metres_abb);
+			return metresAbbreviation;
 		else
-			return getContext().getResources().getString(R.string.feet_abb);			
+			return feetAbbreviation;
 	}
 	
 	/**
@@ -150,213 +312,265 @@ public class DrawingSurface extends View {
 	}
 	
 	/**
-	 * Draw the diagram.
+	 * Work out where everything goes on the diagram. This only needs
+	 * doing when the size of the view changes.
 	 */
 	@Override
-    protected void onDraw(Canvas canvas) {
-    	   	
-		// getWidth() returns the value set in the setMeasuredDimension() call
-		// in onMeasure().
-		//
-    	int viewWidth  = getWidth();
-    	
-    	// Bump up the size of the displayed numbers to make them
-    	// a bit more readable
-    	//
-    	float fontScale = getResources().getDisplayMetrics().density;
-    	
-        Paint brightPaint = new Paint();
-        brightPaint.setAntiAlias(true);
-        brightPaint.setColor(0xffffffff); // Full alpha, white
-        brightPaint.setTextSize( brightPaint.getTextSize() * fontScale );
-
-        Paint dimPaint = new Paint();
-        dimPaint.setAntiAlias(true);
-        dimPaint.setColor(0xff555555);    // Full alpha, grey-ish
-        dimPaint.setTextSize( brightPaint.getTextSize() * fontScale );
-
+	protected void onSizeChanged( int w, int h, int oldw, int oldh )
+	{
+		super.onSizeChanged( w, h, oldw, oldh );
+		computeLayout( w );
+	}
+	
+	protected void computeLayout( int viewWidth )
+	{
+		layoutWidth = viewWidth;
+		discardStaticLayer();
+		
 		// Field of view constants.
         //
-              int FOV_LEFT_SIDE    = ORIGIN;
-        final int FOV_TOP          = V_LINE_HEIGHT + V_LINE_SPACING;
-        final int FOV_BOTTOM       = FOV_TOP+FIELD_HEIGHT;
-        final int FOV_RIGHT_SIDE   = viewWidth-ORIGIN;
-    	final int MIDDLE_Y         = (FOV_BOTTOM-FOV_TOP)/2 + FOV_TOP;
+        fovLeftSide    = ORIGIN;
+        fovTop         = V_LINE_HEIGHT + V_LINE_SPACING;
+        fovBottom      = fovTop+FIELD_HEIGHT;
+        fovRightSide   = viewWidth-ORIGIN;
+    	middleY        = (fovBottom-fovTop)/2 + fovTop;
 
-    	// Render the camera image at the left side, and move the DOF diagram in
-    	// the width of that image from the left side
+    	// The camera image goes at the left side, and the DOF diagram is
+    	// moved in the width of that image from the left side
     	//
-    	Bitmap bm = BitmapFactory.decodeResource(getContext().getResources(), R.drawable.cam_side_on);
-    	canvas.drawBitmap(bm, FOV_LEFT_SIDE, MIDDLE_Y-(bm.getHeight())/2, brightPaint);
-    	FOV_LEFT_SIDE += bm.getWidth()+getContext().getResources().getInteger(R.integer.view_padding)/2;
+    	cameraY        = middleY-(cameraBitmap.getHeight())/2;
+    	fovLeftSide   += cameraBitmap.getWidth()+ORIGIN/2;
     	
     	// Now calculate the rest of the constants
     	//
-    	final int MIDDLE_X         = (FOV_RIGHT_SIDE-FOV_LEFT_SIDE)/2 + FOV_LEFT_SIDE;
-        final int FOV_TOP_LEFT     = MIDDLE_Y-(FIELD_HEIGHT/4);
-        final int FOV_BOTTOM_LEFT  = MIDDLE_Y+(FIELD_HEIGHT/4);
-        final int FOV_TOP_RIGHT    = MIDDLE_Y-((FIELD_HEIGHT/4)*3);
-        final int FOV_BOTTOM_RIGHT = MIDDLE_Y+((FIELD_HEIGHT/4)*3);
+    	middleX        = (fovRightSide-fovLeftSide)/2 + fovLeftSide;
+        fovTopLeft     = middleY-(FIELD_HEIGHT/4);
+        fovBottomLeft  = middleY+(FIELD_HEIGHT/4);
+        fovTopRight    = middleY-((FIELD_HEIGHT/4)*3);
+        fovBottomRight = middleY+((FIELD_HEIGHT/4)*3);
         
-        // Fill in the gradient values
+        // The gradient runs across the field of view. The frame lines are
+        // drawn with it too.
         //
-		Paint shaderPaint = new Paint();
-        shaderPaint.setAntiAlias(true);
-        shaderPaint.setShader( new LinearGradient(FOV_LEFT_SIDE, MIDDLE_Y,
-        		                                  FOV_RIGHT_SIDE, MIDDLE_Y,
+        Shader gradient = new LinearGradient(fovLeftSide, middleY,
+        		                                  fovRightSide, middleY,
         										  new int[] {0xffeeeeee, 0xff6384B5, 0xffeeeeee},
         										  null,
-        										  Shader.TileMode.CLAMP) );
-        shaderPaint.setStyle(Paint.Style.FILL);
+        										  Shader.TileMode.CLAMP);
+        shaderPaint.setShader( gradient );
+        framePaint.setShader( gradient );
         
-        // Draw the field of view, gradient bar
+        // The field of view, gradient bar
         //
-        Path leftPath = new Path();
-        leftPath.moveTo( FOV_LEFT_SIDE,  FOV_TOP_LEFT );
-        leftPath.lineTo( FOV_RIGHT_SIDE, FOV_TOP_RIGHT );
-        leftPath.lineTo( FOV_RIGHT_SIDE, FOV_BOTTOM_RIGHT );
-        leftPath.lineTo( FOV_LEFT_SIDE,  FOV_BOTTOM_LEFT );
-        leftPath.lineTo( FOV_LEFT_SIDE,  FOV_TOP_LEFT );
-        canvas.drawPath( leftPath, shaderPaint );
-        
-        // Heavier white lines to frame field of view.
-        //
-        shaderPaint.setColor(0xffffffff);
-        shaderPaint.setStrokeWidth(1.5f);
-        canvas.drawLine(FOV_LEFT_SIDE, FOV_TOP_LEFT,    FOV_RIGHT_SIDE, FOV_TOP_RIGHT,    shaderPaint);
-        canvas.drawLine(FOV_LEFT_SIDE, FOV_BOTTOM_LEFT, FOV_RIGHT_SIDE, FOV_BOTTOM_RIGHT, shaderPaint);
+        fovPath.reset();
+        fovPath.moveTo( fovLeftSide,  fovTopLeft );
+        fovPath.lineTo( fovRightSide, fovTopRight );
+        fovPath.lineTo( fovRightSide, fovBottomRight );
+        fovPath.lineTo( fovLeftSide,  fovBottomLeft );
+        fovPath.lineTo( fovLeftSide,  fovTopLeft );
         
         // Subject, a blob in the centre
         //
-        canvas.drawRoundRect( new RectF(MIDDLE_X-SUBJECT_SIZE,
-        						        MIDDLE_Y-SUBJECT_SIZE,
-        						        MIDDLE_X+SUBJECT_SIZE,
-        						        MIDDLE_Y+SUBJECT_SIZE), 2.0f, 2.0f, brightPaint);
+        subjectRect.set( middleX-SUBJECT_SIZE,
+        		         middleY-SUBJECT_SIZE,
+        		         middleX+SUBJECT_SIZE,
+        		         middleY+SUBJECT_SIZE );
 
         // Calculate some useful values for placing the numeric values and their separator lines
         // These are labelled "thirds", but in fact it works better if I use quarters, making the
         // middle section bigger than the two side ones. :)
         //
-        final int FOV_ONE_THIRD_WIDTH     = (FOV_RIGHT_SIDE-FOV_LEFT_SIDE)/4;
-        final int FOV_ONE_THIRD           = FOV_LEFT_SIDE + FOV_ONE_THIRD_WIDTH;
-        final int FOV_TWO_THIRDS          = FOV_LEFT_SIDE + (FOV_ONE_THIRD_WIDTH*3);
+        final int FOV_ONE_THIRD_WIDTH = (fovRightSide-fovLeftSide)/4;
+        fovOneThird    = fovLeftSide + FOV_ONE_THIRD_WIDTH;
+        fovTwoThirds   = fovLeftSide + (FOV_ONE_THIRD_WIDTH*3);
         
-        // 2 vertical lines above FOV mark near limit, dof and far limit thirds
-        //
-        canvas.drawLine(FOV_ONE_THIRD,  FOV_TOP-V_LINE_SPACING, FOV_ONE_THIRD,  FOV_TOP-V_LINE_SPACING-V_LINE_HEIGHT, dimPaint);
-        canvas.drawLine(FOV_TWO_THIRDS, FOV_TOP-V_LINE_SPACING, FOV_TWO_THIRDS, FOV_TOP-V_LINE_SPACING-V_LINE_HEIGHT, dimPaint);
+    	// Hyperfocal distance bits at the bottom
+    	//
+    	hyperfocalY    = middleY+(SUBJECT_SIZE/2)+(V_LINE_SPACING*3)+V_LINE_HEIGHT;
+    	
+    	// Infinity symbol on far right side
+    	//
+        brightPaint.getTextBounds("W", 0, 1, textRect); // Width of \u22e1 is 5 pixels, which is wrong! Puzzlement. Use a W instead.
+        infinityTextX  = fovRightSide-textRect.width();
+        infinityTextY  = hyperfocalY+(V_LINE_HEIGHT/2)+(textRect.height()/2);
         
-        // Vertical lines below FOV mark in front of and behind subject ranges
+        // The rows of values, and how far either side of their centre
+        // lines they reach. The text is centred on the line so half the
+        // text height would do, but the whole height leaves room for
+        // descenders.
         //
-        canvas.drawLine(FOV_ONE_THIRD,  FOV_BOTTOM+V_LINE_SPACING, FOV_ONE_THIRD,  FOV_BOTTOM+V_LINE_SPACING+V_LINE_HEIGHT, dimPaint);
-        canvas.drawLine(FOV_TWO_THIRDS, FOV_BOTTOM+V_LINE_SPACING, FOV_TWO_THIRDS, FOV_BOTTOM+V_LINE_SPACING+V_LINE_HEIGHT, dimPaint);
+        topRowY        = fovTop-V_LINE_SPACING-(V_LINE_HEIGHT/2);
+        middleRowY     = fovBottom+V_LINE_SPACING+(V_LINE_HEIGHT/2);
+        hyperfocalRowY = hyperfocalY+(V_LINE_HEIGHT/2);
         
-        // Vertical line below the subject
+        brightPaint.getTextBounds(ROW_TEXT_SAMPLE, 0, ROW_TEXT_SAMPLE.length(), textRect);
+        rowHalfHeight  = Math.max( textRect.height(), Math.max(V_LINE_HEIGHT/2, HEIGHT_ARROW_HEAD) ) + 1;
+	}
+	
+	@Override
+	protected void onDetachedFromWindow()
+	{
+		super.onDetachedFromWindow();
+		discardStaticLayer();
+	}
+	
+	/**
+	 * Throws away the cached static layer so it's redrawn next time round.
+	 */
+	protected void discardStaticLayer()
+	{
+		if ( staticLayer != null ) {
+			staticLayer.recycle();
+			staticLayer = null;
+		}
+	}
+	
+	/**
+	 * Draw the diagram.
+	 * <p>
+	 * Everything used here is set up in advance, so this allocates nothing
+	 * except, once per layout, the static layer bitmap.
+	 */
+	@Override
+    protected void onDraw(Canvas canvas) {
+    	   	
+		// getWidth() returns the value set in the setMeasuredDimension() call
+		// in onMeasure(). The layout should always be ready by now, but just
+		// in case the view's been drawn without being sized, check.
+		//
+		if ( getWidth() != layoutWidth )
+			computeLayout( getWidth() );
+		
+		if ( staticLayer == null && getWidth() > 0 && getHeight() > 0 ) {
+			try {
+				staticLayer = Bitmap.createBitmap( getWidth(), getHeight(), Bitmap.Config.ARGB_8888 );
+				drawStaticLayer( new Canvas(staticLayer) );
+			}
+			catch ( OutOfMemoryError e ) {
+				staticLayer = null;
+			}
+		}
+		
+		// If there's no room for the static layer it's drawn directly
+		//
+		if ( staticLayer != null )
+			canvas.drawBitmap( staticLayer, 0, 0, null );
+		else
+			drawStaticLayer( canvas );
+		
+		drawValues( canvas );
+	}
+	
+	/**
+	 * Draws the parts of the diagram which don't change with the values.
+	 * 
+	 * @param canvas
+	 */
+	protected void drawStaticLayer( Canvas canvas )
+	{
+    	// Render the camera image at the left side
+    	//
+    	canvas.drawBitmap(cameraBitmap, ORIGIN, cameraY, brightPaint);
+    	
+        // Draw the field of view, gradient bar, framed with white lines
         //
-        canvas.drawLine(MIDDLE_X, MIDDLE_Y+(SUBJECT_SIZE/2)+V_LINE_SPACING, MIDDLE_X, FOV_BOTTOM+V_LINE_SPACING+V_LINE_HEIGHT, dimPaint);
+        canvas.drawPath( fovPath, shaderPaint );
+        canvas.drawLine(fovLeftSide, fovTopLeft,    fovRightSide, fovTopRight,    framePaint);
+        canvas.drawLine(fovLeftSide, fovBottomLeft, fovRightSide, fovBottomRight, framePaint);
         
-        // Text strings - all infinity until the model supplies a real value
+        // Subject, a blob in the centre
         //
-        String infinityStr           = this.getContext().getString(R.string.infinity);
-        
-        String nearLimitStr          = infinityStr;
-        String dofStr                = infinityStr;
-        String farLimitStr           = infinityStr;
-        String inFrontStr            = infinityStr;
-        String behindStr             = infinityStr;
-        String hyperfocalDistanceStr = infinityStr;
-        String hyperfocalMinStr      = infinityStr;
+        canvas.drawRoundRect( subjectRect, 2.0f, 2.0f, brightPaint);
 
-        if ( nearLimit != null )
-        	nearLimitStr = String.format("%.2f%s", nearLimit, getUnitsAbbreviation());
-        	
-        if ( dof != null )
-        	dofStr       = String.format("%.2f%s", dof, getUnitsAbbreviation());
+        // 2 vertical lines above FOV mark near limit, dof and far limit thirds
+        //
+        canvas.drawLine(fovOneThird,  fovTop-V_LINE_SPACING, fovOneThird,  fovTop-V_LINE_SPACING-V_LINE_HEIGHT, dimPaint);
+        canvas.drawLine(fovTwoThirds, fovTop-V_LINE_SPACING, fovTwoThirds, fovTop-V_LINE_SPACING-V_LINE_HEIGHT, dimPaint);
         
-        if (farLimit != null )
-        	farLimitStr  = String.format("%.2f%s", farLimit, getUnitsAbbreviation());
-
-        if ( inFront != null )
-        	inFrontStr   = String.format("%.2f%s", inFront, getUnitsAbbreviation());
+        // Vertical lines below FOV mark in front of and behind subject ranges
+        //
+        canvas.drawLine(fovOneThird,  fovBottom+V_LINE_SPACING, fovOneThird,  fovBottom+V_LINE_SPACING+V_LINE_HEIGHT, dimPaint);
+        canvas.drawLine(fovTwoThirds, fovBottom+V_LINE_SPACING, fovTwoThirds, fovBottom+V_LINE_SPACING+V_LINE_HEIGHT, dimPaint);
         
-        if ( behind != null )
-        	behindStr    = String.format("%.2f%s", behind, getUnitsAbbreviation());
+        // Vertical line below the subject
+        //
+        canvas.drawLine(middleX, middleY+(SUBJECT_SIZE/2)+V_LINE_SPACING, middleX, fovBottom+V_LINE_SPACING+V_LINE_HEIGHT, dimPaint);
         
-        if ( hyperfocalDistance != null )
-        	hyperfocalDistanceStr = String.format("%.2f%s", hyperfocalDistance, getUnitsAbbreviation());
+        // Another vertical line below the one third point
+        //
+        canvas.drawLine(fovOneThird, hyperfocalY, fovOneThird, hyperfocalY+V_LINE_HEIGHT, dimPaint);
         
-        if ( hyperfocalMin != null )
-        	hyperfocalMinStr      = String.format("%.2f%s", hyperfocalMin, getUnitsAbbreviation());
-
+    	// Infinity symbol on far right side
+    	//
+        canvas.drawText(infinityStr, infinityTextX, infinityTextY, brightPaint);
+	}
+	
+	/**
+	 * Draws the values, and the arrows which go with them.
+	 * 
+	 * @param canvas
+	 */
+	protected void drawValues( Canvas canvas )
+	{
         // Display the text values
         //
         arrowedString( canvas, nearLimitStr,
-        		       FOV_LEFT_SIDE, FOV_ONE_THIRD, FOV_TOP-V_LINE_SPACING-(V_LINE_HEIGHT/2), brightPaint,
+        		       fovLeftSide, fovOneThird, topRowY, brightPaint,
         			   false, true, dimPaint );
 
     	arrowedString( canvas, dofStr,
-    			       FOV_ONE_THIRD, FOV_TWO_THIRDS, FOV_TOP-V_LINE_SPACING-(V_LINE_HEIGHT/2), brightPaint,
+    			       fovOneThird, fovTwoThirds, topRowY, brightPaint,
     			       true, true, dimPaint );
 
     	arrowedString( canvas, farLimitStr,
-    			       FOV_TWO_THIRDS, FOV_RIGHT_SIDE, FOV_TOP-V_LINE_SPACING-(V_LINE_HEIGHT/2), brightPaint,
+    			       fovTwoThirds, fovRightSide, topRowY, brightPaint,
     			       true, false, dimPaint );
     	
     	arrowedString( canvas, inFrontStr,
-    			       FOV_ONE_THIRD, MIDDLE_X, FOV_BOTTOM+V_LINE_SPACING+(V_LINE_HEIGHT/2), brightPaint,
+    			       fovOneThird, middleX, middleRowY, brightPaint,
     			       true, true, dimPaint );
 
     	arrowedString( canvas, behindStr,
-    			       MIDDLE_X, FOV_TWO_THIRDS, FOV_BOTTOM+V_LINE_SPACING+(V_LINE_HEIGHT/2), brightPaint,
+    			       middleX, fovTwoThirds, middleRowY, brightPaint,
     			       true, true, dimPaint );
 
-    	// Hyperfocal distance bits at the bottom
-    	//
-    	final int HYPERFOCAL_Y = MIDDLE_Y+(SUBJECT_SIZE/2)+(V_LINE_SPACING*3)+V_LINE_HEIGHT; 
-    	
-        // Another vertical line below the one third point
-        //
-        canvas.drawLine(FOV_ONE_THIRD, HYPERFOCAL_Y, FOV_ONE_THIRD, HYPERFOCAL_Y+V_LINE_HEIGHT, dimPaint);
-        
         // Hyperfocal minimum distance
         //
         arrowedString( canvas, hyperfocalMinStr,
-        		       FOV_LEFT_SIDE, FOV_ONE_THIRD, HYPERFOCAL_Y+(V_LINE_HEIGHT/2), brightPaint,
+        		       fovLeftSide, fovOneThird, hyperfocalRowY, brightPaint,
         			   false, true, dimPaint );
 
         // Hyperfocal distance (with left side arrow)
         //
         arrowedString( canvas, hyperfocalDistanceStr,
-        		       FOV_ONE_THIRD, FOV_TWO_THIRDS, HYPERFOCAL_Y+(V_LINE_HEIGHT/2), brightPaint,
+        		       fovOneThird, fovTwoThirds, hyperfocalRowY, brightPaint,
         			   true, false, dimPaint );
 
-    	// Infinity symbol on far right side
-    	//
-    	Rect textRect = new Rect();
-        brightPaint.getTextBounds("W", 0, 1, textRect); // Width of \u22e1 is 5 pixels, which is wrong! Puzzlement. Use a W instead.
-        int infinityTextLeftSide = FOV_RIGHT_SIDE-textRect.width(); 
-        canvas.drawText(getContext().getString(R.string.infinity), infinityTextLeftSide, HYPERFOCAL_Y+(V_LINE_HEIGHT/2)+(textRect.height()/2), brightPaint);
-        infinityTextLeftSide -= ARROW_SPACING;
+        // Arrow runs up to the infinity symbol on far right side
+        //
+        int infinityTextLeftSide = infinityTextX - ARROW_SPACING;
         
         // Hyperfocal distance string size
         //
-        textRect = new Rect();
-        dimPaint.getTextBounds(hyperfocalDistanceStr, 0, hyperfocalDistanceStr.length(), textRect);
+        dimPaint.getTextBounds(hyperfocalDistanceStr.getBuffer(), 0, hyperfocalDistanceStr.length(), textRect);
         
         // Line from right side of hyperfocal distance string to the infinity sign, with arrow
         //
-        canvas.drawLine(MIDDLE_X+((textRect.width())/2)+ARROW_SPACING, HYPERFOCAL_Y+(V_LINE_HEIGHT/2),
-        		        infinityTextLeftSide, HYPERFOCAL_Y+(V_LINE_HEIGHT/2), dimPaint);
-		Path rightArrowHead = new Path();
-		rightArrowHead.moveTo(infinityTextLeftSide, HYPERFOCAL_Y+(V_LINE_HEIGHT/2));
-		rightArrowHead.lineTo(infinityTextLeftSide-WIDTH_ARROW_HEAD, HYPERFOCAL_Y+(V_LINE_HEIGHT/2)+HEIGHT_ARROW_HEAD);
-		rightArrowHead.lineTo(infinityTextLeftSide-WIDTH_ARROW_HEAD, HYPERFOCAL_Y+(V_LINE_HEIGHT/2)-HEIGHT_ARROW_HEAD);
-		rightArrowHead.lineTo(infinityTextLeftSide-ARROW_SPACING, HYPERFOCAL_Y+(V_LINE_HEIGHT/2));
-		canvas.drawPath(rightArrowHead, dimPaint);
+        canvas.drawLine(middleX+((textRect.width())/2)+ARROW_SPACING, hyperfocalY+(V_LINE_HEIGHT/2),
+        		        infinityTextLeftSide, hyperfocalY+(V_LINE_HEIGHT/2), dimPaint);
+        arrowHeadPath.reset();
+        arrowHeadPath.moveTo(infinityTextLeftSide, hyperfocalY+(V_LINE_HEIGHT/2));
+        arrowHeadPath.lineTo(infinityTextLeftSide-WIDTH_ARROW_HEAD, hyperfocalY+(V_LINE_HEIGHT/2)+HEIGHT_ARROW_HEAD);
+        arrowHeadPath.lineTo(infinityTextLeftSide-WIDTH_ARROW_HEAD, hyperfocalY+(V_LINE_HEIGHT/2)-HEIGHT_ARROW_HEAD);
+        arrowHeadPath.lineTo(infinityTextLeftSide-ARROW_SPACING, hyperfocalY+(V_LINE_HEIGHT/2));
+		canvas.drawPath(arrowHeadPath, dimPaint);
     }
 	
     /**
      * Draw a line with a text string in the middle and optional left and right side arrows
+     * <p>
+     * This uses the shared text bounds rectangle and arrow head path, so it
+     * must only be called on the UI thread.
      * 
      * @param canvas
      * @param str
@@ -368,12 +582,11 @@ public class DrawingSurface extends View {
      * @param rightArrow
      * @param arrowPaint
      */
-	protected void arrowedString( Canvas canvas, String str,
+	protected void arrowedString( Canvas canvas, FixedPointFormatter str,
     		                      int leftX, int rightX, int centreY, Paint textPaint,
     						      boolean leftArrow, boolean rightArrow, Paint arrowPaint )
     {
-    	Rect textRect = new Rect();
-        textPaint.getTextBounds(str, 0, str.length(), textRect);
+        textPaint.getTextBounds(str.getBuffer(), 0, str.length(), textRect);
         
         // drawText() draws the text with baseline on the given y-coordinate.
         // To make the text's horizontal centre line the y-coordinate I need
@@ -382,26 +595,26 @@ public class DrawingSurface extends View {
         int textCentreX = ((rightX-leftX)/2) + leftX;
         int xPos        = textCentreX-textRect.centerX();
         int yPos        = centreY+(textRect.height()/2);
-    	canvas.drawText(str, xPos, yPos, textPaint);
+    	canvas.drawText(str.getBuffer(), 0, str.length(), xPos, yPos, textPaint);
     	
     	if ( leftArrow ) {
     		canvas.drawLine(leftX+ARROW_SPACING, centreY, textCentreX-(textRect.width()/2)-ARROW_SPACING, centreY, arrowPaint);
-    		Path leftArrowHead = new Path();
-    		leftArrowHead.moveTo(leftX+ARROW_SPACING, centreY);
-    		leftArrowHead.lineTo(leftX+ARROW_SPACING+WIDTH_ARROW_HEAD, centreY+HEIGHT_ARROW_HEAD);
-    		leftArrowHead.lineTo(leftX+ARROW_SPACING+WIDTH_ARROW_HEAD, centreY-HEIGHT_ARROW_HEAD);
-    		leftArrowHead.lineTo(leftX+ARROW_SPACING, centreY);
-    		canvas.drawPath(leftArrowHead, arrowPaint);
+    		arrowHeadPath.reset();
+    		arrowHeadPath.moveTo(leftX+ARROW_SPACING, centreY);
+    		arrowHeadPath.lineTo(leftX+ARROW_SPACING+WIDTH_ARROW_HEAD, centreY+HEIGHT_ARROW_HEAD);
+    		arrowHeadPath.lineTo(leftX+ARROW_SPACING+WIDTH_ARROW_HEAD, centreY-HEIGHT_ARROW_HEAD);
+    		arrowHeadPath.lineTo(leftX+ARROW_SPACING, centreY);
+    		canvas.drawPath(arrowHeadPath, arrowPaint);
     	}
 
     	if ( rightArrow ) {
     		canvas.drawLine(textCentreX+(textRect.width()/2)+ARROW_SPACING, centreY, rightX-ARROW_SPACING, centreY, arrowPaint);
-    		Path rightArrowHead = new Path();
-    		rightArrowHead.moveTo(rightX-ARROW_SPACING, centreY);
-    		rightArrowHead.lineTo(rightX-ARROW_SPACING-WIDTH_ARROW_HEAD, centreY+HEIGHT_ARROW_HEAD);
-    		rightArrowHead.lineTo(rightX-ARROW_SPACING-WIDTH_ARROW_HEAD, centreY-HEIGHT_ARROW_HEAD);
-    		rightArrowHead.lineTo(rightX-ARROW_SPACING, centreY);
-    		canvas.drawPath(rightArrowHead, arrowPaint);
+    		arrowHeadPath.reset();
+    		arrowHeadPath.moveTo(rightX-ARROW_SPACING, centreY);
+    		arrowHeadPath.lineTo(rightX-ARROW_SPACING-WIDTH_ARROW_HEAD, centreY+HEIGHT_ARROW_HEAD);
+    		arrowHeadPath.lineTo(rightX-ARROW_SPACING-WIDTH_ARROW_HEAD, centreY-HEIGHT_ARROW_HEAD);
+    		arrowHeadPath.lineTo(rightX-ARROW_SPACING, centreY);
+    		canvas.drawPath(arrowHeadPath, arrowPaint);
     	}
     }
     
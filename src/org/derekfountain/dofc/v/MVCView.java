@@ -3,13 +3,17 @@ package org.derekfountain.dofc.v;
 import org.derekfountain.dofc.R;
 import org.derekfountain.dofc.c.MVCController;
 import org.derekfountain.dofc.m.Body;
+import org.derekfountain.dofc.m.DofResult;
 import org.derekfountain.dofc.m.Lens;
 import org.derekfountain.dofc.m.MVCModel;
+import org.derekfountain.dofc.m.ModelListener;
 import org.derekfountain.dofc.m.Range;
 
 import android.app.Activity;
 import android.content.Context;
 import android.content.res.Resources;
+import android.os.Handler;
+import android.os.SystemClock;
 import android.util.Log;
 import android.view.View;
 import android.widget.SeekBar;
@@ -19,7 +23,7 @@ import android.widget.TextView;
  * This is the GUI view structure part of the MVC pattern.
  * 
  */
-public class MVCView {
+public class MVCView implements ModelListener {
 
 	// Enum describes the result being shown in metres or feet.
 	//
@@ -30,7 +34,7 @@ public class MVCView {
 	
 	// Conversion factor
 	//
-	public final static double FEET_PER_METRE = 3.2808399;
+	public final static double FEET_PER_METRE = MVCModel.FEET_PER_METRE;
 	
 	// Android activity this view runs under. The activity knows its main content
 	// widget and from there Activity.findViewById() will yield any view in the
@@ -40,6 +44,12 @@ public class MVCView {
 	//
 	protected Activity mActivity = null;
 	
+	// View the widgets are looked for under, or null to look through the
+	// activity's whole content. A view shared by several tabs isn't
+	// necessarily in the activity's content yet when it's first set up.
+	//
+	protected View mRoot = null;
+	
 	// Model object, to request state from
 	//
 	protected MVCModel mModel = null;
@@ -52,6 +62,52 @@ public class MVCView {
 	//
 	protected Units mUnits = Units.METRIC;
 	
+	// Copy of the model's results, converted to the units being
+	// displayed. Reused on every model change.
+	//
+	protected final DofResult mDisplayResult = new DofResult();
+	
+	// Text for the slider labels and the result values. These are rebuilt
+	// in place on every change, rather than formatting new strings. Each
+	// TextView keeps hold of the characters it's given, so each one has a
+	// formatter of its own.
+	//
+	protected final FixedPointFormatter mFocalLengthText       = new FixedPointFormatter(0);
+	protected final FixedPointFormatter mApertureText          = new FixedPointFormatter(1);
+	protected final FixedPointFormatter mSubjectDistanceText   = new FixedPointFormatter(0);
+	protected final FixedPointFormatter mNearLimitText         = new FixedPointFormatter(2);
+	protected final FixedPointFormatter mFarLimitText          = new FixedPointFormatter(2);
+	protected final FixedPointFormatter mTotalText             = new FixedPointFormatter(2);
+	protected final FixedPointFormatter mInFrontText           = new FixedPointFormatter(2);
+	protected final FixedPointFormatter mBehindSubjectText     = new FixedPointFormatter(2);
+	protected final FixedPointFormatter mHyperfocalText        = new FixedPointFormatter(2);
+	protected final FixedPointFormatter mCircleOfConfusionText = new FixedPointFormatter(3, null, "mm");
+	
+	// Shown in place of a value when the value is infinite
+	//
+	protected final String mInfiniteText;
+	
+	// Title last shown, so it's only set when the body changes
+	//
+	protected String mTitleText = null;
+	
+	// Slider drags produce progress events much faster than the screen
+	// can be redrawn. Rather than recalculate and redraw for every one,
+	// the first event schedules a pass which picks up whatever the
+	// sliders say when it runs, and no more than one pass is run per
+	// frame. These run on the UI thread, so no locking is needed.
+	//
+	protected static final long FRAME_INTERVAL_MS = 16;
+	
+	protected final Handler  mHandler          = new Handler();
+	protected boolean        mInputPending     = false;
+	protected long           mLastInputTime    = 0;
+	protected final Runnable mPendingInput     = new Runnable() {
+		public void run() {
+			runUserInput();
+		}
+	};
+	
 	public MVCModel getModel() {
 		return mModel;
 	}
@@ -69,6 +125,7 @@ public class MVCView {
 	}
 	public void setUnits(Units units) {
 		this.mUnits = units;
+		updateUnitsText();
 	}
 	/*
 	 * Getters and setters for the data items. These aren't
@@ -77,22 +134,22 @@ public class MVCView {
 	 */
 	public Integer getFocalLength()
 	{
-		Slider wFocalLength = (Slider)mActivity.findViewById(R.id.FocalLength);
+		Slider wFocalLength = (Slider)findViewById(R.id.FocalLength);
 		return new Integer( wFocalLength.getSliderValue() );
 	}
 	public void setFocalLength( int newFocalLength )
 	{
-		Slider wFocalLength = (Slider)mActivity.findViewById(R.id.FocalLength);
+		Slider wFocalLength = (Slider)findViewById(R.id.FocalLength);
 		wFocalLength.setSliderValue(newFocalLength);
 	}
 	public Integer getAperture()
 	{
-		Slider wAperture = (Slider)mActivity.findViewById(R.id.Aperture);
+		Slider wAperture = (Slider)findViewById(R.id.Aperture);
 		return new Integer( wAperture.getSliderValue() );
 	}
 	public void setAperture( int newAperture )
 	{
-		Slider wAperture = (Slider)mActivity.findViewById(R.id.Aperture);
+		Slider wAperture = (Slider)findViewById(R.id.Aperture);
 		wAperture.setSliderValue(newAperture);
 	}
 	
@@ -105,7 +162,7 @@ public class MVCView {
 	 */
 	public Integer getDistance()
 	{
-		Slider wDistance = (Slider)mActivity.findViewById(R.id.Distance);
+		Slider wDistance = (Slider)findViewById(R.id.Distance);
 		
 		// Slider might be showing imperial distance. This must return
 		// the value in metres.
@@ -129,7 +186,7 @@ public class MVCView {
 	 */
 	public void setDistance( int newDistance )
 	{
-		Slider wDistance = (Slider)mActivity.findViewById(R.id.Distance);
+		Slider wDistance = (Slider)findViewById(R.id.Distance);
 
 		if ( mUnits == MVCView.Units.IMPERIAL )
 			newDistance = (int)Math.rint((double)newDistance * FEET_PER_METRE);
@@ -147,8 +204,77 @@ public class MVCView {
 	 * @param activity
 	 */
 	public MVCView( Activity activity )
+	{
+		this( activity, null );
+	}
+	
+	/**
+	 * Constructor for a view whose widgets are in a layout the activity
+	 * didn't set as its content itself.
+	 * 
+	 * @param activity
+	 * @param root     The layout the widgets are in
+	 */
+	public MVCView( Activity activity, View root )
 	{
 		this.mActivity    = activity;
+		this.mRoot        = root;
+		
+		// These don't need conversions - "mm" and "f/" are universal
+		//
+		mFocalLengthText.setPrefix( activity.getString(R.string.focal_length) + " " );
+		mFocalLengthText.setSuffix( "mm" );
+		mApertureText.setPrefix( activity.getString(R.string.aperture) + " f/" );
+		mSubjectDistanceText.setPrefix( activity.getString(R.string.subject_distance) + " " );
+		
+		mInfiniteText = activity.getString(R.string.infinite);
+		
+		updateUnitsText();
+	}
+	
+	/**
+	 * Finds one of the page's widgets
+	 * 
+	 * @param viewId
+	 * @return The widget, or null if there's no such widget
+	 */
+	protected View findViewById( int viewId )
+	{
+		return ( mRoot != null ) ? mRoot.findViewById(viewId) : mActivity.findViewById(viewId);
+	}
+	
+	/**
+	 * Sets the units shown after the distance values to the ones
+	 * currently in use.
+	 */
+	protected void updateUnitsText()
+	{
+		String units = convertUnitsFormat();
+		
+		mSubjectDistanceText.setSuffix( units );
+		mNearLimitText.setSuffix( units );
+		mFarLimitText.setSuffix( units );
+		mTotalText.setSuffix( units );
+		mInFrontText.setSuffix( units );
+		mBehindSubjectText.setSuffix( units );
+		mHyperfocalText.setSuffix( units );
+	}
+	
+	/**
+	 * Sets the text of a TextView from a formatter, without making a
+	 * String of it.
+	 * <p>
+	 * Setting the text makes the TextView lay itself out again, so the
+	 * callers use the formatters' update methods and only come here when
+	 * the text has actually changed.
+	 * 
+	 * @param viewId
+	 * @param text
+	 */
+	protected void setText( int viewId, FixedPointFormatter text )
+	{
+		TextView textView = (TextView)findViewById(viewId);
+		textView.setText( text.getBuffer(), 0, text.length() );
 	}
 
 	/**
@@ -160,13 +286,55 @@ public class MVCView {
 		public void onProgressChanged(SeekBar seekBar, int progress, boolean fromUser) {
 
 			// There's only 3 UI widgets so I don't try to work with what's
-			// changed - I just do a complete update from all widgets
+			// changed - I just do a complete update from all widgets.
+			// Changes the user is making by dragging are coalesced, the rest
+			// are applied straight away.
 			//
-			userInput();			
+			if ( fromUser )
+				scheduleUserInput();
+			else
+				runUserInput();
 		}
 
 		public void onStartTrackingTouch(SeekBar seekBar) {}
-		public void onStopTrackingTouch(SeekBar seekBar) {}
+		
+		public void onStopTrackingTouch(SeekBar seekBar) {
+			
+			// The user has let go, so make sure the final value is what's shown
+			//
+			runUserInput();
+		}
+	}
+	
+	/**
+	 * Arranges for the slider values to be processed, no sooner than one
+	 * frame after they were last processed. If that's already been arranged
+	 * this does nothing; the values are read when the pass runs, so it will
+	 * pick up the latest ones anyway.
+	 */
+	protected void scheduleUserInput()
+	{
+		if ( mInputPending )
+			return;
+		
+		mInputPending = true;
+		mHandler.postAtTime( mPendingInput, Math.max( SystemClock.uptimeMillis(),
+				                                      mLastInputTime + FRAME_INTERVAL_MS ) );
+	}
+	
+	/**
+	 * Processes the slider values now, cancelling any pass which has
+	 * been scheduled.
+	 */
+	protected void runUserInput()
+	{
+		if ( mInputPending ) {
+			mHandler.removeCallbacks( mPendingInput );
+			mInputPending = false;
+		}
+		
+		mLastInputTime = SystemClock.uptimeMillis();
+		userInput();
 	}
 	
 	/**
@@ -193,9 +361,9 @@ public class MVCView {
 		
 		SeekBarListener seekBarListener = new SeekBarListener();
 
-		Slider         wFocalLength     = (Slider)mActivity.findViewById(R.id.FocalLength);
-		ApertureSlider wAperture        = (ApertureSlider)mActivity.findViewById(R.id.Aperture);
-		Slider         wSubjectDistance = (Slider)mActivity.findViewById(R.id.Distance);
+		Slider         wFocalLength     = (Slider)findViewById(R.id.FocalLength);
+		ApertureSlider wAperture        = (ApertureSlider)findViewById(R.id.Aperture);
+		Slider         wSubjectDistance = (Slider)findViewById(R.id.Distance);
 		
 		// All the sliders (seekbars) use the same listener object
 		//
@@ -218,7 +386,7 @@ public class MVCView {
 		
 		// Synthesise user input so the new values get processed
 		//
-		userInput();
+		runUserInput();
 	}
 	
 	/**
@@ -229,25 +397,20 @@ public class MVCView {
 	 */
 	protected void userInput()
 	{
-		Context appContext = mActivity.getApplicationContext();
-		
-		// These don't need conversions - "mm" and "f/" are universal
-		//
-		Slider wFocalLength            = (Slider)mActivity.findViewById(R.id.FocalLength);
+		Slider wFocalLength            = (Slider)findViewById(R.id.FocalLength);
 		int focalLength                = wFocalLength.getSliderValue();
-		TextView wFocalLengthLabel     = (TextView)mActivity.findViewById(R.id.FocalLengthLabel);
-		wFocalLengthLabel.setText( appContext.getString(R.string.focal_length) + String.format(" %dmm", focalLength) );		
+		if ( mFocalLengthText.update(focalLength) )
+			setText( R.id.FocalLengthLabel, mFocalLengthText );
 		
-		ApertureSlider wAperture       = (ApertureSlider)mActivity.findViewById(R.id.Aperture);
+		ApertureSlider wAperture       = (ApertureSlider)findViewById(R.id.Aperture);
 		int aperture                   = wAperture.getSliderValue();
-		TextView wApertureLabel        = (TextView)mActivity.findViewById(R.id.ApertureLabel);
-		wApertureLabel.setText( appContext.getString(R.string.aperture) + String.format(" f/%2.1f", aperture / 100.0) );		
+		if ( mApertureText.update(aperture / 100.0) )
+			setText( R.id.ApertureLabel, mApertureText );
 
-		Slider wSubjectDistance        = (Slider)mActivity.findViewById(R.id.Distance);
+		Slider wSubjectDistance        = (Slider)findViewById(R.id.Distance);
 		int subjectDistance            = wSubjectDistance.getSliderValue();
-		TextView wSubjectDistanceLabel = (TextView)mActivity.findViewById(R.id.SubjectDistanceLabel);
-		wSubjectDistanceLabel.setText( appContext.getString(R.string.subject_distance) +
-									   String.format(" %d"+convertUnitsFormat(), subjectDistance) );
+		if ( mSubjectDistanceText.update(subjectDistance) )
+			setText( R.id.SubjectDistanceLabel, mSubjectDistanceText );
 
 		// If the widget is showing feet, this needs to be converted to metres before
 		// it's inserted into the model (which uses metric throughout). i.e. if the
@@ -281,119 +444,100 @@ public class MVCView {
 		if ( mModel.isValidState() == false )
 			return;
 		
-		Double nearLimit          = mModel.getNearLimit();
-		Double farLimit           = mModel.getFarLimit();
-		Double total              = mModel.getTotal();
-		Double frontDistance      = mModel.getFrontDistance();
-		Double behindDistance     = mModel.getBehindDistance();
-		Double hyperfocalDistance = mModel.getHyperfocalDistance();
-		Double circleOfConfusion  = mModel.getCircleOfConfusion();
-
-		// Values come from the model as metres. Convert values to imperial if required
+		// Values come from the model as metres. Take a copy of them so they can
+		// be converted to imperial if required without disturbing the model
 		//
-		if ( mUnits == Units.IMPERIAL ) {
-			nearLimit          = nearLimit          != null ? nearLimit * FEET_PER_METRE          : null;
-			farLimit           = farLimit           != null ? farLimit * FEET_PER_METRE           : null;
-			total              = total              != null ? total * FEET_PER_METRE              : null;
-			frontDistance      = frontDistance      != null ? frontDistance * FEET_PER_METRE      : null;
-			behindDistance     = behindDistance     != null ? behindDistance * FEET_PER_METRE     : null;
-			hyperfocalDistance = hyperfocalDistance != null ? hyperfocalDistance * FEET_PER_METRE : null;
-		}
+		final DofResult result = mDisplayResult;
+		result.copyFrom( mModel.getResult() );
 		
-		Context appContext = mActivity.getApplicationContext();
+		if ( mUnits == Units.IMPERIAL )
+			result.scaleDistances( FEET_PER_METRE );
 		
 		/* TODO
 		 * As of this version, all these text fields are not shown in the GUI.
 		 * The plan is for a touch to replace the diagram with text fields, so
 		 * for now I'm going to keep these functioning.
 		 */		
-		View textTable = (View)mActivity.findViewById(R.id.TextTable);
+		View textTable = (View)findViewById(R.id.TextTable);
 		if ( textTable.isShown() ) {
+			// Only the values whose text has changed are set. On a distance
+			// drag, for instance, the hyperfocal distance and the CoC don't
+			// change.
+			//
 			// Near limit
 			//
-			TextView wNearLimit = (TextView)mActivity.findViewById(R.id.NearLimitValue);
-			try {
-				wNearLimit.setText( String.format("%.2f"+convertUnitsFormat(), nearLimit ) );
-			} catch (Exception e) {
-				wNearLimit.setText( appContext.getString(R.string.not_a_number) );
-			}
+			if ( mNearLimitText.update(result.getNearLimit()) )
+				setText( R.id.NearLimitValue, mNearLimitText );
 	
-			// Far limit
+			// Far limit, total DoF and behind distance are all infinite
+			// together
 			//
-			TextView wFarLimit = (TextView)mActivity.findViewById(R.id.FarLimitValue);
-			try {
-				if ( farLimit == null )
-					wFarLimit.setText( appContext.getString(R.string.infinite) );
-				else
-					wFarLimit.setText( String.format("%.2f"+convertUnitsFormat(), farLimit ) );
-			} catch (Exception e) {
-				wFarLimit.setText( appContext.getString(R.string.not_a_number) );
+			boolean farLimitChanged, totalChanged, behindSubjectChanged;
+			if ( result.isInfinite() ) {
+				farLimitChanged      = mFarLimitText.updateText(mInfiniteText);
+				totalChanged         = mTotalText.updateText(mInfiniteText);
+				behindSubjectChanged = mBehindSubjectText.updateText(mInfiniteText);
 			}
-	
-			// Total DoF
-			//
-			TextView wTotal = (TextView)mActivity.findViewById(R.id.TotalValue);
-			try {
-				if ( total == null )
-					wTotal.setText( appContext.getString(R.string.infinite) );
-				else
-					wTotal.setText( String.format("%.2f"+convertUnitsFormat(), total ) );
-			} catch (Exception e) {
-				wTotal.setText( appContext.getString(R.string.not_a_number) );
+			else {
+				farLimitChanged      = mFarLimitText.update(result.getFarLimit());
+				totalChanged         = mTotalText.update(result.getTotal());
+				behindSubjectChanged = mBehindSubjectText.update(result.getBehindDistance());
 			}
+			if ( farLimitChanged )
+				setText( R.id.FarLimitValue, mFarLimitText );
+			if ( totalChanged )
+				setText( R.id.TotalValue, mTotalText );
+			if ( behindSubjectChanged )
+				setText( R.id.BehindSubjectValue, mBehindSubjectText );
 	
 			// Front distance
 			//
-			TextView wInFront = (TextView)mActivity.findViewById(R.id.InFrontValue);
-			try {
-				wInFront.setText( String.format("%.2f"+convertUnitsFormat(), frontDistance ) );
-			} catch (Exception e) {
-				wInFront.setText( appContext.getString(R.string.not_a_number) );
-			}
+			if ( mInFrontText.update(result.getFrontDistance()) )
+				setText( R.id.InFrontValue, mInFrontText );
 	
-			// Behind distance
+			// HfD arrives in metres
 			//
-			TextView wBehindSubject = (TextView)mActivity.findViewById(R.id.BehindSubjectValue);
-			try {
-				if ( behindDistance == null )
-					wTotal.setText( appContext.getString(R.string.infinite) );
-				else
-					wBehindSubject.setText( String.format("%.2f"+convertUnitsFormat(), behindDistance ) );
-			} catch (Exception e) {
-				wBehindSubject.setText( appContext.getString(R.string.not_a_number) );
-			}
-	
-			TextView wHyperfocal = (TextView)mActivity.findViewById(R.id.HyperfocalDistanceValue);
-			try {
-				// HfD arrives in metres
-				//
-				wHyperfocal.setText( String.format("%.2f"+convertUnitsFormat(), hyperfocalDistance ) );
-			} catch (Exception e) {
-				wHyperfocal.setText( appContext.getString(R.string.not_a_number) );
-			}
+			if ( mHyperfocalText.update(result.getHyperfocalDistance()) )
+				setText( R.id.HyperfocalDistanceValue, mHyperfocalText );
 	
-			TextView wCircleOfConfusion = (TextView)mActivity.findViewById(R.id.CircleOfConfusionValue);
-			try {
-				// CoC arrives in metres - convert to mm
-				//
-				wCircleOfConfusion.setText( String.format("%04.3fmm", circleOfConfusion * 1000.0) );
-			} catch (Exception e) {
-				wCircleOfConfusion.setText( appContext.getString(R.string.not_a_number) );
-			}
+			// CoC arrives in metres - convert to mm
+			//
+			if ( mCircleOfConfusionText.update(result.getCircleOfConfusion() * 1000.0) )
+				setText( R.id.CircleOfConfusionValue, mCircleOfConfusionText );
 		}
 		
-		TextView wTitle = (TextView)mActivity.findViewById(R.id.title);
-		wTitle.setText( mModel.getBody().getName() );
+		String title = mModel.getBody().getName();
+		if ( !title.equals(mTitleText) ) {
+			TextView wTitle = (TextView)findViewById(R.id.title);
+			wTitle.setText( title );
+			mTitleText = title;
+		}
 			
-		DrawingSurface drawingSurface = (DrawingSurface)mActivity.findViewById(R.id.DrawingSurface);
-		drawingSurface.setValues( nearLimit,
-								  farLimit,
-								  total,
-								  frontDistance,
-								  behindDistance,
-								  hyperfocalDistance,
-								  mUnits );
-		drawingSurface.invalidate();
+		// The drawing surface works out for itself which parts of the
+		// diagram need redrawing
+		//
+		DrawingSurface drawingSurface = (DrawingSurface)findViewById(R.id.DrawingSurface);
+		drawingSurface.setValues( result, mUnits );
+	}
+	
+	/**
+	 * Answers a short summary of the current results, the near and far
+	 * limits in the current units, for a tab label.
+	 * 
+	 * @return The summary, or null if there aren't any results yet
+	 */
+	public String getSummary()
+	{
+		if ( mModel == null || mModel.isValidState() == false )
+			return null;
+
+		// The display copy is already in the current units
+		//
+		DofResult result = mDisplayResult;
+		String    far    = result.isInfinite() ? mActivity.getApplicationContext().getResources().getString(R.string.infinity)
+				                               : new FixedPointFormatter(1).format(result.getFarLimit()).toString();
+
+		return new FixedPointFormatter(1).format(result.getNearLimit()).toString()+" - "+far+convertUnitsFormat();
 	}
 	
 	/**
@@ -421,7 +565,7 @@ public class MVCView {
 		// the widget range, then force the widget to show the old
 		// value in the new units.
 		//
-		Slider wSubjectDistance = (Slider)mActivity.findViewById(R.id.Distance);
+		Slider wSubjectDistance = (Slider)findViewById(R.id.Distance);
 		int subjectDistance     = wSubjectDistance.getSliderValue();
 
 		if ( this.mUnits == Units.METRIC )
@@ -430,6 +574,7 @@ public class MVCView {
 			subjectDistance = (int)(Math.rint((double)subjectDistance / FEET_PER_METRE));
 		
 		this.mUnits = newUnits;
+		updateUnitsText();
 
 		// Synthesize a range change so the range limits on the slider
 		// widget gets redrawn in the new units. changeRange() expects
@@ -445,7 +590,7 @@ public class MVCView {
 		// Synthesize user input to trigger recalculations and redrawing
 		// of slider values and the graphic
 		//
-		userInput();
+		runUserInput();
 	}
 	
 	/**
@@ -467,27 +612,27 @@ public class MVCView {
 	{
 		// Update the labels in the widgets to match lens
 		//
-		TextView wMinFocalLengthLabel = (TextView)mActivity.findViewById(R.id.MinFocalLengthLabel);
+		TextView wMinFocalLengthLabel = (TextView)findViewById(R.id.MinFocalLengthLabel);
 		wMinFocalLengthLabel.setText( String.format("%dmm", newLens.getMinLength()) );
 		
-		TextView wMaxFocalLengthLabel = (TextView)mActivity.findViewById(R.id.MaxFocalLengthLabel);
+		TextView wMaxFocalLengthLabel = (TextView)findViewById(R.id.MaxFocalLengthLabel);
 		wMaxFocalLengthLabel.setText( String.format("%dmm", newLens.getMaxLength()) );
 
-		TextView wMinAperture = (TextView)mActivity.findViewById(R.id.MinApertureLabel);
+		TextView wMinAperture = (TextView)findViewById(R.id.MinApertureLabel);
 		wMinAperture.setText( String.format("f/%2.1f", newLens.getMinAperture() / 100.0) );
 
-		TextView wMaxAperture = (TextView)mActivity.findViewById(R.id.MaxApertureLabel);
+		TextView wMaxAperture = (TextView)findViewById(R.id.MaxApertureLabel);
 		wMaxAperture.setText( String.format("f/%2.1f", newLens.getMaxAperture() / 100.0) );
 		
 		// Update the focal length slider so it represents the
 		// lens range correctly.
 		//
-		Slider wFocalLength = (Slider)mActivity.findViewById(R.id.FocalLength);
+		Slider wFocalLength = (Slider)findViewById(R.id.FocalLength);
 		wFocalLength.setRangeMinMax( newLens.getMinLength(), newLens.getMaxLength() );
 
 		// Update the aperture slider so it understands the range it's representing
 		//
-		ApertureSlider wAperture = (ApertureSlider)mActivity.findViewById(R.id.Aperture);
+		ApertureSlider wAperture = (ApertureSlider)findViewById(R.id.Aperture);
 		wAperture.setRangeMinMax( newLens.getMinAperture(), newLens.getMaxAperture() );
 		wAperture.setStops( newLens.getStopRanges() );
 		
@@ -515,15 +660,15 @@ public class MVCView {
 
 		// Update the labels in the widgets to match the new range
 		//
-		TextView wMinDistance = (TextView)mActivity.findViewById(R.id.MinDistanceLabel);
+		TextView wMinDistance = (TextView)findViewById(R.id.MinDistanceLabel);
 		wMinDistance.setText( String.format("%d"+convertUnitsFormat(), minDistance) );
 
-		TextView wMaxDistance = (TextView)mActivity.findViewById(R.id.MaxDistanceLabel);
+		TextView wMaxDistance = (TextView)findViewById(R.id.MaxDistanceLabel);
 		wMaxDistance.setText( String.format("%d"+convertUnitsFormat(), maxDistance) );
 		
 		// Update the Slider so it understands the range it's representing
 		//
-		Slider wDistance = (Slider)mActivity.findViewById(R.id.Distance);
+		Slider wDistance = (Slider)findViewById(R.id.Distance);
 		wDistance.setRangeMinMax( minDistance, maxDistance );
 
 		// UI is ready - tell the controller the new details
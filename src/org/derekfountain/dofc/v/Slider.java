@@ -104,6 +104,18 @@ public class Slider extends SeekBar {
 		super.setProgress( adjustedValue );
 	}
 	
+	/**
+	 * Sets the position of the underlying seekbar directly, bypassing the
+	 * stubbed out setProgress() below. This is for subclasses which map
+	 * their values onto the seekbar some other way.
+	 * 
+	 * @param progress
+	 */
+	protected void setSeekBarProgress( int progress )
+	{
+		super.setProgress( progress );
+	}
+	
 	/**
 	 * According to the Android docs I should just be able to override the
 	 * progress setter and getter with my revised versions which handle the
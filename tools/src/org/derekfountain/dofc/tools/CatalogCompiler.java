@@ -0,0 +1,381 @@
+package org.derekfountain.dofc.tools;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+
+/**
+ * Build time tool which compiles the body, lens and range XML files into
+ * the binary catalogue the application loads at runtime.
+ * <p>
+ * Usage:
+ * <pre>
+ *   java org.derekfountain.dofc.tools.CatalogCompiler res/xml res/raw/catalog.bin
+ * </pre>
+ * The ant build runs this before the resources are packaged (see
+ * custom_rules.xml). If you edit the XML files and build some other way,
+ * run it by hand.
+ * <p>
+ * The XML files are checked as they're compiled. Anything wrong with them -
+ * a missing field, a number which doesn't parse, no default entry - stops
+ * the build, rather than producing a catalogue with bits missing.
+ * <p>
+ * The format is described in org.derekfountain.dofc.m.Catalog, which is
+ * the code that reads it. All values are big-endian:
+ * <pre>
+ *   int    magic, "DOFC"
+ *   int    version
+ *   int    number of strings
+ *     per string:  unsigned short length, UTF-8 bytes
+ *   int    number of bodies, int default body
+ *     per body:    int name, double circle of confusion
+ *   int    number of lenses, int default lens
+ *     per lens:    int name, int min length, int max length, int starting length,
+ *                  int min aperture, int max aperture, int starting aperture,
+ *                  int stop ranges
+ *   int    number of ranges, int default range
+ *     per range:   int name, int min distance, int max distance, int starting distance
+ * </pre>
+ * Names are indexes into the string table. The stop ranges are a bit set,
+ * bit n being StopRange ordinal n.
+ */
+public class CatalogCompiler {
+
+	protected static final int      MAGIC       = 0x444f4643;    // "DOFC"
+	protected static final int      VERSION     = 1;
+
+	/**
+	 * Stop range names as used in the lenses XML, in StopRange ordinal order
+	 */
+	protected static final String[] STOP_RANGES = { "full", "quarter", "third", "half" };
+
+	/**
+	 * Strings, in the order they'll be written to the string table
+	 */
+	protected ArrayList<String>        strings     = new ArrayList<String>();
+	protected HashMap<String,Integer>  stringIndex = new HashMap<String,Integer>();
+
+	/**
+	 * Records for each of the three sections, already encoded
+	 */
+	protected ByteArrayOutputStream    bodies      = new ByteArrayOutputStream();
+	protected ByteArrayOutputStream    lenses      = new ByteArrayOutputStream();
+	protected ByteArrayOutputStream    ranges      = new ByteArrayOutputStream();
+
+	protected int bodyCount    = 0;
+	protected int lensCount    = 0;
+	protected int rangeCount   = 0;
+	protected int defaultBody  = -1;
+	protected int defaultLens  = -1;
+	protected int defaultRange = -1;
+
+	/**
+	 * Thrown when the XML doesn't describe a valid catalogue.
+	 */
+	protected static class CatalogException extends Exception {
+		private static final long serialVersionUID = 1L;
+
+		public CatalogException( String message ) {
+			super(message);
+		}
+	}
+
+	public static void main( String[] args ) throws Exception
+	{
+		if ( args.length != 2 ) {
+			System.err.println("Usage: CatalogCompiler <xml directory> <output file>");
+			System.exit(2);
+		}
+
+		CatalogCompiler compiler = new CatalogCompiler();
+		try {
+			compiler.compileBodies( new File(args[0], "bodies.xml") );
+			compiler.compileLenses( new File(args[0], "lenses.xml") );
+			compiler.compileRanges( new File(args[0], "ranges.xml") );
+		}
+		catch ( CatalogException e ) {
+			System.err.println("Catalogue error: "+e.getMessage());
+			System.exit(1);
+		}
+
+		compiler.write( new File(args[1]) );
+	}
+
+	/**
+	 * Adds the bodies in the given XML file to the catalogue.
+	 *
+	 * @param file
+	 * @throws Exception
+	 */
+	protected void compileBodies( File file ) throws Exception
+	{
+		DataOutputStream out   = new DataOutputStream(bodies);
+		HashSet<String>  names = new HashSet<String>();
+
+		for ( Element body : includedElements(file, "body") ) {
+			String where = file.getName()+", body "+(bodyCount+1);
+			String name  = uniqueName( body, names, where );
+
+			double circleOfConfusion = doubleField( body, "circleofconfusion", where );
+			if ( !(circleOfConfusion > 0) )
+				throw new CatalogException(where+": circle of confusion must be positive");
+
+			if ( isDefault(body) )
+				defaultBody = setDefault( defaultBody, bodyCount, where );
+
+			out.writeInt( string(name) );
+			out.writeDouble( circleOfConfusion );
+			bodyCount++;
+		}
+
+		if ( defaultBody < 0 )
+			throw new CatalogException(file.getName()+": no default body");
+	}
+
+	/**
+	 * Adds the lenses in the given XML file to the catalogue.
+	 *
+	 * @param file
+	 * @throws Exception
+	 */
+	protected void compileLenses( File file ) throws Exception
+	{
+		DataOutputStream out   = new DataOutputStream(lenses);
+		HashSet<String>  names = new HashSet<String>();
+
+		for ( Element lens : includedElements(file, "lens") ) {
+			String where = file.getName()+", lens "+(lensCount+1);
+			String name  = uniqueName( lens, names, where );
+
+			int minLength        = intField( lens, "minlength", where );
+			int maxLength        = intField( lens, "maxlength", where );
+			int startingLength   = intField( lens, "startinglength", where );
+			int minAperture      = intField( lens, "minaperture", where );
+			int maxAperture      = intField( lens, "maxaperture", where );
+			int startingAperture = intField( lens, "startingaperture", where );
+			checkRange( minLength, startingLength, maxLength, where+" focal lengths" );
+			checkRange( minAperture, startingAperture, maxAperture, where+" apertures" );
+
+			int stopRanges = 0;
+			NodeList stopsRanges = lens.getElementsByTagName("stopsrange");
+			for ( int i = 0; i < stopsRanges.getLength(); i++ ) {
+				String rangeName = ((Element)stopsRanges.item(i)).getAttribute("name");
+				int    ordinal   = -1;
+				for ( int j = 0; j < STOP_RANGES.length; j++ ) {
+					if ( STOP_RANGES[j].equalsIgnoreCase(rangeName) )
+						ordinal = j;
+				}
+				if ( ordinal < 0 )
+					throw new CatalogException(where+": unknown stops range \""+rangeName+"\"");
+				stopRanges |= (1 << ordinal);
+			}
+			if ( stopRanges == 0 )
+				throw new CatalogException(where+": no stops range");
+
+			if ( isDefault(lens) )
+				defaultLens = setDefault( defaultLens, lensCount, where );
+
+			out.writeInt( string(name) );
+			out.writeInt( minLength );
+			out.writeInt( maxLength );
+			out.writeInt( startingLength );
+			out.writeInt( minAperture );
+			out.writeInt( maxAperture );
+			out.writeInt( startingAperture );
+			out.writeInt( stopRanges );
+			lensCount++;
+		}
+
+		if ( defaultLens < 0 )
+			throw new CatalogException(file.getName()+": no default lens");
+	}
+
+	/**
+	 * Adds the ranges in the given XML file to the catalogue.
+	 *
+	 * @param file
+	 * @throws Exception
+	 */
+	protected void compileRanges( File file ) throws Exception
+	{
+		DataOutputStream out   = new DataOutputStream(ranges);
+		HashSet<String>  names = new HashSet<String>();
+
+		for ( Element range : includedElements(file, "range") ) {
+			String where = file.getName()+", range "+(rangeCount+1);
+			String name  = uniqueName( range, names, where );
+
+			int minDistance      = intField( range, "mindistance", where );
+			int maxDistance      = intField( range, "maxdistance", where );
+			int startingDistance = intField( range, "startingdistance", where );
+			checkRange( minDistance, startingDistance, maxDistance, where+" distances" );
+
+			if ( isDefault(range) )
+				defaultRange = setDefault( defaultRange, rangeCount, where );
+
+			out.writeInt( string(name) );
+			out.writeInt( minDistance );
+			out.writeInt( maxDistance );
+			out.writeInt( startingDistance );
+			rangeCount++;
+		}
+
+		if ( defaultRange < 0 )
+			throw new CatalogException(file.getName()+": no default range");
+	}
+
+	/**
+	 * Writes the compiled catalogue to the given file.
+	 *
+	 * @param file
+	 * @throws IOException
+	 */
+	protected void write( File file ) throws IOException
+	{
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		try {
+			out.writeInt( MAGIC );
+			out.writeInt( VERSION );
+
+			out.writeInt( strings.size() );
+			for ( String string : strings ) {
+				byte[] bytes = string.getBytes("UTF-8");
+				out.writeShort( bytes.length );
+				out.write( bytes );
+			}
+
+			out.writeInt( bodyCount );
+			out.writeInt( defaultBody );
+			bodies.writeTo( out );
+
+			out.writeInt( lensCount );
+			out.writeInt( defaultLens );
+			lenses.writeTo( out );
+
+			out.writeInt( rangeCount );
+			out.writeInt( defaultRange );
+			ranges.writeTo( out );
+		}
+		finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Answers the elements with the given tag name in the XML file, leaving
+	 * out the ones marked include="false".
+	 */
+	protected static ArrayList<Element> includedElements( File file, String tagName ) throws Exception
+	{
+		DocumentBuilder builder  = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+		Document        document = builder.parse( file );
+
+		ArrayList<Element> included = new ArrayList<Element>();
+		NodeList           nodes    = document.getElementsByTagName( tagName );
+		for ( int i = 0; i < nodes.getLength(); i++ ) {
+			Element element = (Element)nodes.item(i);
+			if ( !"false".equals(element.getAttribute("include")) )
+				included.add( element );
+		}
+		return included;
+	}
+
+	/**
+	 * The default attribute can go on the entry itself or on any of its fields.
+	 */
+	protected static boolean isDefault( Element element )
+	{
+		if ( "true".equals(element.getAttribute("default")) )
+			return true;
+
+		for ( Node child = element.getFirstChild(); child != null; child = child.getNextSibling() ) {
+			if ( child instanceof Element && "true".equals(((Element)child).getAttribute("default")) )
+				return true;
+		}
+		return false;
+	}
+
+	protected static int setDefault( int currentDefault, int index, String where ) throws CatalogException
+	{
+		if ( currentDefault >= 0 )
+			throw new CatalogException(where+": more than one default");
+		return index;
+	}
+
+	protected static String textField( Element element, String tagName, String where ) throws CatalogException
+	{
+		NodeList nodes = element.getElementsByTagName( tagName );
+		if ( nodes.getLength() != 1 )
+			throw new CatalogException(where+": expected exactly one <"+tagName+">");
+
+		String text = nodes.item(0).getTextContent().trim();
+		if ( text.length() == 0 )
+			throw new CatalogException(where+": <"+tagName+"> is empty");
+		return text;
+	}
+
+	protected static int intField( Element element, String tagName, String where ) throws CatalogException
+	{
+		String text = textField( element, tagName, where );
+		try {
+			return Integer.parseInt( text );
+		}
+		catch ( NumberFormatException e ) {
+			throw new CatalogException(where+": <"+tagName+"> \""+text+"\" is not an integer");
+		}
+	}
+
+	protected static double doubleField( Element element, String tagName, String where ) throws CatalogException
+	{
+		String text = textField( element, tagName, where );
+		try {
+			return Double.parseDouble( text );
+		}
+		catch ( NumberFormatException e ) {
+			throw new CatalogException(where+": <"+tagName+"> \""+text+"\" is not a number");
+		}
+	}
+
+	protected static String uniqueName( Element element, HashSet<String> names, String where ) throws CatalogException
+	{
+		String name = textField( element, "name", where );
+		if ( !names.add(name) )
+			throw new CatalogException(where+": duplicate name \""+name+"\"");
+		return name;
+	}
+
+	protected static void checkRange( int min, int starting, int max, String what ) throws CatalogException
+	{
+		if ( min <= 0 || min > max || starting < min || starting > max )
+			throw new CatalogException(what+" must satisfy 0 < min <= starting <= max, got "+min+", "+starting+", "+max);
+	}
+
+	/**
+	 * Answers the index of the given string in the string table, adding
+	 * it if it's not already there.
+	 */
+	protected int string( String string )
+	{
+		Integer index = stringIndex.get( string );
+		if ( index == null ) {
+			index = strings.size();
+			strings.add( string );
+			stringIndex.put( string, index );
+		}
+		return index;
+	}
+}